@@ -0,0 +1,431 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import javalib.worldimages.Posn;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                     BENCHMARKS                                    *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to run the Minesweeper benchmarks that draw a Board: every benchmark, at every board size
+// and mine density, reporting throughput, latency percentiles and bytes allocated per
+// operation
+// (these need javalib, which isn't published anywhere a build can fetch it from, so they run
+// on this small harness; everything that needs no graphics -- grids, flood fills, the solver,
+// save files and journals -- is benchmarked with JMH, in the Maven module in bench/jmh)
+//
+// usage: java MinesweeperBenchmarks [options]
+//   --benchmarks a,b,...  which benchmarks to run (default: all; see BENCHMARK_NAMES)
+//   --sizes 9x9,30x16,... board sizes as rowsxcols (default: 9x9 up to 4000x4000)
+//   --densities 0.12,...  fractions of cells that are mines (default: 0.01, 0.12, 0.21)
+//   --warmup ms           time spent warming up each benchmark (default: 500)
+//   --time ms             time spent measuring each benchmark (default: 1000)
+//   --out file.csv        also write the results as CSV
+//   --baseline file.csv   compare throughput to an earlier --out file, and exit with status 1
+//                         if any benchmark got slower by more than --tolerance
+//   --tolerance fraction  allowed throughput drop before it's a regression (default: 0.1)
+class MinesweeperBenchmarks {
+  static final String[] BENCHMARK_NAMES = {
+      "getCellPos", // finding the cell under the mouse
+      "makeScene", // drawing a frame from scratch
+      "makeSceneChanged", // drawing a frame where one cell changed (never a full redraw)
+      "restart" }; // pressing enter after a game ends
+
+  static final String DEFAULT_SIZES = "9x9,16x16,30x16,100x100,1000x1000,4000x4000";
+  static final String DEFAULT_DENSITIES = "0.01,0.12,0.21";
+  static final int MIN_RUNS = 5; // every benchmark is measured at least this many times
+
+  public static void main(String[] args) throws IOException {
+    HashMap<String, String> options = parseOptions(args);
+    String[] names = options.getOrDefault("benchmarks", String.join(",", BENCHMARK_NAMES))
+        .split(",");
+    String[] sizes = options.getOrDefault("sizes", DEFAULT_SIZES).split(",");
+    String[] densities = options.getOrDefault("densities", DEFAULT_DENSITIES).split(",");
+    long warmupNanos = Long.parseLong(options.getOrDefault("warmup", "500")) * 1000000;
+    long timeNanos = Long.parseLong(options.getOrDefault("time", "1000")) * 1000000;
+
+    ArrayList<Result> results = new ArrayList<Result>();
+    System.out.println(Result.HEADER);
+    for (String name : names) {
+      for (String size : sizes) {
+        String[] rowsCols = size.split("x");
+        int rows = Integer.parseInt(rowsCols[0]);
+        int cols = Integer.parseInt(rowsCols[1]);
+        for (String density : densities) {
+          int mines = (int) Math.round(rows * cols * Double.parseDouble(density));
+          IBenchmark benchmark = create(name, rows, cols, mines);
+          Result result = measure(benchmark, warmupNanos, timeNanos);
+          result.name = name;
+          result.size = size;
+          result.density = density;
+          results.add(result);
+          System.out.println(result);
+        }
+      }
+    }
+
+    if (options.containsKey("out")) {
+      writeCsv(results, options.get("out"));
+    }
+    if (options.containsKey("baseline")) {
+      double tolerance = Double.parseDouble(options.getOrDefault("tolerance", "0.1"));
+      if (!compare(results, readCsv(options.get("baseline")), tolerance)) {
+        System.exit(1);
+      }
+    }
+  }
+
+  // read "--name value" pairs from the command line
+  static HashMap<String, String> parseOptions(String[] args) {
+    HashMap<String, String> options = new HashMap<String, String>();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (!args[i].startsWith("--")) {
+        throw new IllegalArgumentException("Expected an option, got " + args[i]);
+      }
+      options.put(args[i].substring(2), args[i + 1]);
+    }
+    return options;
+  }
+
+  // create the benchmark with the given name, for boards of the given size and mine count
+  static IBenchmark create(String name, int rows, int cols, int mines) {
+    if (name.equals("getCellPos")) {
+      return new GetCellPosBenchmark(rows, cols, mines);
+    }
+    else if (name.equals("makeScene")) {
+      return new MakeSceneBenchmark(rows, cols, mines, false);
+    }
+    else if (name.equals("makeSceneChanged")) {
+      return new MakeSceneBenchmark(rows, cols, mines, true);
+    }
+    else if (name.equals("restart")) {
+      return new RestartBenchmark(rows, cols, mines);
+    }
+    else {
+      throw new IllegalArgumentException("No benchmark named " + name);
+    }
+  }
+
+  // warm the given benchmark up, then time it; only run() is timed, not setUp()
+  static Result measure(IBenchmark benchmark, long warmupNanos, long timeNanos) {
+    AllocationCounter allocations = new AllocationCounter();
+    long sink = 0; // folds in every run's result, so the JIT can't skip the work
+
+    long warmupEnd = System.nanoTime() + warmupNanos;
+    while (System.nanoTime() < warmupEnd) {
+      benchmark.setUp();
+      sink += benchmark.run();
+    }
+
+    long[] latencies = new long[64];
+    int runs = 0;
+    long totalNanos = 0;
+    long totalBytes = 0;
+    while (totalNanos < timeNanos || runs < MIN_RUNS) {
+      benchmark.setUp();
+      long bytesBefore = allocations.bytes();
+      long start = System.nanoTime();
+      sink += benchmark.run();
+      long elapsed = System.nanoTime() - start;
+      totalBytes += allocations.bytes() - bytesBefore;
+
+      if (runs == latencies.length) {
+        latencies = Arrays.copyOf(latencies, runs * 2);
+      }
+      latencies[runs] = elapsed;
+      runs += 1;
+      totalNanos += elapsed;
+    }
+
+    Result result = new Result();
+    result.sink = sink;
+    result.ops = (long) runs * benchmark.opsPerRun();
+    result.opsPerSecond = result.ops * 1e9 / totalNanos;
+    result.bytesPerOp = allocations.supported() ? (double) totalBytes / result.ops : Double.NaN;
+
+    // latency percentiles, per operation
+    Arrays.sort(latencies, 0, runs);
+    double perOp = 1.0 / benchmark.opsPerRun();
+    result.p50 = percentile(latencies, runs, 0.5) * perOp;
+    result.p90 = percentile(latencies, runs, 0.9) * perOp;
+    result.p99 = percentile(latencies, runs, 0.99) * perOp;
+    result.p999 = percentile(latencies, runs, 0.999) * perOp;
+    result.max = latencies[runs - 1] * perOp;
+    return result;
+  }
+
+  // the given fraction's percentile of the first count (sorted) latencies
+  static long percentile(long[] sorted, int count, double fraction) {
+    int index = (int) Math.ceil(fraction * count) - 1;
+    return sorted[Math.max(0, Math.min(index, count - 1))];
+  }
+
+  // EFFECT: write the given results to the given CSV file
+  static void writeCsv(ArrayList<Result> results, String file) throws IOException {
+    try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+      out.println(Result.CSV_HEADER);
+      for (Result result : results) {
+        out.println(result.toCsv());
+      }
+    }
+  }
+
+  // read the throughput of each benchmark from the given CSV file, keyed by
+  // "name,size,density"
+  static HashMap<String, Double> readCsv(String file) throws IOException {
+    HashMap<String, Double> throughputs = new HashMap<String, Double>();
+    try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+      in.readLine(); // header
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        String[] fields = line.split(",");
+        throughputs.put(fields[0] + "," + fields[1] + "," + fields[2],
+            Double.parseDouble(fields[3]));
+      }
+    }
+    return throughputs;
+  }
+
+  // did every result keep its throughput within the given tolerance of the baseline?
+  // (reports each one that didn't)
+  static boolean compare(ArrayList<Result> results, HashMap<String, Double> baseline,
+      double tolerance) {
+    boolean ok = true;
+    for (Result result : results) {
+      Double before = baseline.get(result.key());
+      if (before != null && result.opsPerSecond < before * (1 - tolerance)) {
+        System.out.printf("REGRESSION %s: %.1f ops/s, was %.1f ops/s (%.0f%% slower)%n",
+            result.key(), result.opsPerSecond, before,
+            100 * (1 - result.opsPerSecond / before));
+        ok = false;
+      }
+    }
+    return ok;
+  }
+
+  // find a non-mine cell with no mine neighbors in the given game (searching from a random
+  // index), or any non-mine cell if there isn't one; -1 if every cell is a mine
+  static int findOpening(Game game, Random rand) {
+    int size = game.grid.size();
+    int start = rand.nextInt(size);
+    int fallback = -1;
+    for (int i = 0; i < size; i++) {
+      int index = (start + i) % size;
+      if (!game.grid.isMine(index)) {
+        if (game.grid.mineNeighbors[index] == 0) {
+          return index;
+        }
+        fallback = fallback < 0 ? index : fallback;
+      }
+    }
+    return fallback;
+  }
+}
+
+// to represent one benchmarked operation
+interface IBenchmark {
+  // EFFECT: prepare the state for one run (not timed)
+  void setUp();
+
+  // do the timed work; return something computed from it, so it can't be optimized away
+  long run();
+
+  // how many operations does one run do?
+  int opsPerRun();
+}
+
+// to represent the measurements of one benchmark, at one board size and mine density
+class Result {
+  static final String HEADER = String.format("%-17s %-10s %-7s %14s %11s %11s %11s %11s %12s",
+      "benchmark", "size", "density", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us",
+      "bytes/op");
+  static final String CSV_HEADER =
+      "benchmark,size,density,ops_per_s,p50_ns,p90_ns,p99_ns,p999_ns,max_ns,bytes_per_op";
+
+  String name;
+  String size;
+  String density;
+  long ops;
+  double opsPerSecond;
+  double p50; // latency percentiles and maximum, in nanoseconds per operation
+  double p90;
+  double p99;
+  double p999;
+  double max;
+  double bytesPerOp;
+  long sink;
+
+  // the key identifying this result in a CSV file
+  String key() {
+    return this.name + "," + this.size + "," + this.density;
+  }
+
+  // a table row of this result
+  public String toString() {
+    return String.format("%-17s %-10s %-7s %14.1f %11.3f %11.3f %11.3f %11.3f %12.1f",
+        this.name, this.size, this.density, this.opsPerSecond, this.p50 / 1000,
+        this.p90 / 1000, this.p99 / 1000, this.p999 / 1000, this.bytesPerOp);
+  }
+
+  // a CSV row of this result
+  String toCsv() {
+    return String.format("%s,%.3f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f", this.key(),
+        this.opsPerSecond, this.p50, this.p90, this.p99, this.p999, this.max, this.bytesPerOp);
+  }
+}
+
+// to represent a count of the bytes allocated by the current thread
+class AllocationCounter {
+  com.sun.management.ThreadMXBean threads; // null if the JVM can't count allocations
+
+  AllocationCounter() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      this.threads = (com.sun.management.ThreadMXBean) bean;
+      if (this.threads.isThreadAllocatedMemorySupported()) {
+        this.threads.setThreadAllocatedMemoryEnabled(true);
+      }
+      else {
+        this.threads = null;
+      }
+    }
+  }
+
+  // can this JVM count allocations?
+  boolean supported() {
+    return this.threads != null;
+  }
+
+  // how many bytes has the current thread allocated so far?
+  long bytes() {
+    return this.threads == null ? 0 : this.threads.getThreadAllocatedBytes(
+        Thread.currentThread().getId());
+  }
+}
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                  BOARD BENCHMARKS                                 *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to benchmark finding the cell under the mouse
+class GetCellPosBenchmark implements IBenchmark {
+  static final int CLICKS = 1024; // clicks per run
+
+  Board board;
+  Posn[] clicks;
+
+  GetCellPosBenchmark(int rows, int cols, int mines) {
+    this.board = new Board(rows, cols, mines, new Random(1));
+    Random rand = new Random(2);
+    this.clicks = new Posn[CLICKS];
+    for (int i = 0; i < CLICKS; i++) {
+      this.clicks[i] = new Posn(rand.nextInt(cols * IConstants.CELL_SIDE + 1),
+          rand.nextInt(rows * IConstants.CELL_SIDE + 1));
+    }
+  }
+
+  public void setUp() {
+    // nothing to prepare
+  }
+
+  public long run() {
+    long sum = 0;
+    for (Posn click : this.clicks) {
+      sum += this.board.getCellPos(click).index;
+    }
+    return sum;
+  }
+
+  public int opsPerRun() {
+    return CLICKS;
+  }
+}
+
+// to benchmark drawing a frame: either from scratch, or with one cell changed since the last
+class MakeSceneBenchmark implements IBenchmark {
+  Board board;
+  Random rand;
+  boolean oneChanged; // draw a frame with one changed cell, rather than from scratch?
+
+  MakeSceneBenchmark(int rows, int cols, int mines, boolean oneChanged) {
+    this.board = new Board(rows, cols, mines, new Random(1));
+    this.rand = new Random(2);
+    this.oneChanged = oneChanged;
+
+    // open part of the board, so the frame has a mix of sprites
+    int start = MinesweeperBenchmarks.findOpening(this.board.game, this.rand);
+    if (start >= 0) {
+      this.board.game.reveal(start);
+    }
+    this.board.makeScene();
+  }
+
+  public void setUp() {
+    if (this.oneChanged) {
+      this.board.game.flag(this.hiddenCellInView());
+      if (this.board.redrawsAll()) {
+        // the images drawn over each other have piled up: draw the frame from scratch here,
+        // untimed, and change one cell again, so only the one-cell path is ever timed
+        this.board.makeScene();
+        this.board.game.flag(this.hiddenCellInView());
+      }
+    }
+    else {
+      this.board.scene = null;
+    }
+  }
+
+  public long run() {
+    return this.board.makeScene().hashCode();
+  }
+
+  // a random hidden cell in the board's view (so flagging it changes a cell that's drawn),
+  // found by scanning the view from a random cell; any cell in view if none are hidden
+  int hiddenCellInView() {
+    Board board = this.board;
+    int numInView = board.viewRows * board.viewCols;
+    int first = this.rand.nextInt(numInView);
+    for (int i = 0; i < numInView; i++) {
+      int place = (first + i) % numInView;
+      int index = board.game.grid.index(board.topRow + place / board.viewCols,
+          board.leftCol + place % board.viewCols);
+      if (!board.game.grid.isClicked(index)) {
+        return index;
+      }
+    }
+    return board.game.grid.index(board.topRow, board.leftCol);
+  }
+
+  public int opsPerRun() {
+    return 1;
+  }
+}
+
+// to benchmark pressing enter to restart after a game ends
+class RestartBenchmark implements IBenchmark {
+  Board board;
+
+  RestartBenchmark(int rows, int cols, int mines) {
+    this.board = new Board(rows, cols, mines, new Random(1));
+  }
+
+  public void setUp() {
+    this.board.game.endGame(false);
+  }
+
+  public long run() {
+    this.board.onKeyEvent("enter");
+    return this.board.game.grid.mineBits[0];
+  }
+
+  public int opsPerRun() {
+    return 1;
+  }
+}
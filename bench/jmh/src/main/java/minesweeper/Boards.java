@@ -0,0 +1,49 @@
+package minesweeper;
+
+import java.util.Random;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                  BENCHMARK BOARDS                                 *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent the boards the benchmarks are parameterized over: a size as "rowsxcols" and a
+// density as the fraction of cells that are mines
+class Boards {
+  // the number of rows of the given size
+  static int rows(String size) {
+    return Integer.parseInt(size.substring(0, size.indexOf('x')));
+  }
+
+  // the number of columns of the given size
+  static int cols(String size) {
+    return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+  }
+
+  // the number of mines on a board of the given size and density
+  static int mines(String size, String density) {
+    return (int) Math.round((long) rows(size) * cols(size) * Double.parseDouble(density));
+  }
+
+  // a new game of the given size and density, with a fixed seed
+  static Game game(String size, String density) {
+    return new Game(rows(size), cols(size), mines(size, density), 1L);
+  }
+
+  // find a non-mine cell with no mine neighbors in the given game (searching from a random
+  // index), or any non-mine cell if there isn't one; -1 if every cell is a mine
+  static int findOpening(Game game, Random rand) {
+    int size = game.grid.size();
+    int start = rand.nextInt(size);
+    int fallback = -1;
+    for (int i = 0; i < size; i++) {
+      int index = (start + i) % size;
+      if (!game.grid.isMine(index)) {
+        if (game.grid.mineNeighbors[index] == 0) {
+          return index;
+        }
+        fallback = fallback < 0 ? index : fallback;
+      }
+    }
+    return fallback;
+  }
+}
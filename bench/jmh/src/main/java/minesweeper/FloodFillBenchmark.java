@@ -0,0 +1,62 @@
+package minesweeper;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                FLOOD FILL BENCHMARK                               *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to benchmark revealing a 0-neighbor cell, and everything it flood-fills, on a fresh board
+// (each call gets a new board with its mines placed, untimed)
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FloodFillBenchmark {
+  @Param({ "9x9", "30x16", "100x100", "1000x1000", "4000x4000" })
+  String size;
+
+  @Param({ "0.01", "0.12", "0.21" })
+  String density;
+
+  Game game;
+  Random rand;
+  int start; // the cell to reveal
+
+  @Setup
+  public void setUp() {
+    this.game = Boards.game(this.size, this.density);
+    this.rand = new Random(2);
+  }
+
+  @Setup(Level.Invocation)
+  public void newBoard() {
+    this.game.restart();
+    this.game.placeMines(); // placed up front, so only the fill itself is timed
+    this.start = Boards.findOpening(this.game, this.rand);
+  }
+
+  @Benchmark
+  public int floodFill() {
+    if (this.start >= 0) {
+      this.game.reveal(this.start);
+    }
+    return this.game.visibleCells;
+  }
+}
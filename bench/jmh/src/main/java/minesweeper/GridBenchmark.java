@@ -0,0 +1,65 @@
+package minesweeper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                  GRID BENCHMARKS                                  *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to benchmark making a grid and a game, and recounting a grid's mine neighbors
+// (run with -prof gc for the bytes each one allocates)
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GridBenchmark {
+  @Param({ "9x9", "30x16", "100x100", "1000x1000", "4000x4000" })
+  String size;
+
+  @Param({ "0.01", "0.12", "0.21" })
+  String density;
+
+  Grid placed; // a grid with its mines placed, to be recounted
+
+  @Setup
+  public void setUp() {
+    Game game = Boards.game(this.size, this.density);
+    game.placeMines();
+    this.placed = game.grid;
+  }
+
+  // allocating a grid's cells (what initializeCells and initializeNeighbors did)
+  @Benchmark
+  public Grid newGrid() {
+    return new Grid(Boards.rows(this.size), Boards.cols(this.size));
+  }
+
+  // the whole Game constructor (mines aren't placed until the first reveal)
+  @Benchmark
+  public Game construct() {
+    return new Game(Boards.rows(this.size), Boards.cols(this.size),
+        Boards.mines(this.size, this.density), 1L);
+  }
+
+  // recounting every cell's mine neighbors from the mine bits (as a load does)
+  @Benchmark
+  public void recount(Blackhole hole) {
+    this.placed.recountMineNeighbors();
+    hole.consume(this.placed.mineNeighbors);
+  }
+}
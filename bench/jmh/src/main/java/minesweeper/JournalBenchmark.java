@@ -0,0 +1,68 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                 JOURNAL BENCHMARK                                 *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to benchmark recording moves in a journal, batches written to its file and all
+// (a record is much quicker than a timer call, so RECORDS are timed together, and reported
+// per record; each iteration starts a new journal, so the file doesn't grow without end)
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JournalBenchmark {
+  static final int RECORDS = 1024;
+
+  @Param({ "9x9", "1000x1000", "4000x4000" }) // the size of the indices recorded
+  String size;
+
+  Journal journal;
+  Path path;
+  int cells;
+
+  @Setup(Level.Iteration)
+  public void setUp() throws IOException {
+    Game game = Boards.game(this.size, "0.12");
+    this.path = Files.createTempFile("minesweeper", ".journal");
+    this.journal = new Journal(game, this.path);
+    this.cells = game.grid.size();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() throws IOException {
+    this.journal.close();
+    Files.delete(this.path);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public int record() {
+    for (int i = 0; i < RECORDS; i++) {
+      this.journal.record(i & 3, (i * 7919) % this.cells);
+    }
+    return this.journal.numRecorded;
+  }
+}
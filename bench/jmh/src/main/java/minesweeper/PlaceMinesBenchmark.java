@@ -0,0 +1,55 @@
+package minesweeper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                               PLACE MINES BENCHMARK                               *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to benchmark placing mines on a cleared grid, as the first reveal does
+// (the grid is cleared before each call, untimed; on the smallest boards that costs about as
+// much as the call itself, so their numbers are rougher than the rest)
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PlaceMinesBenchmark {
+  @Param({ "9x9", "30x16", "100x100", "1000x1000", "4000x4000" })
+  String size;
+
+  @Param({ "0.01", "0.12", "0.21" })
+  String density;
+
+  Game game;
+
+  @Setup
+  public void setUp() {
+    this.game = Boards.game(this.size, this.density);
+  }
+
+  @Setup(Level.Invocation)
+  public void clear() {
+    this.game.grid.reset();
+  }
+
+  @Benchmark
+  public long[] placeMines() {
+    this.game.placeMines();
+    return this.game.grid.mineBits;
+  }
+}
@@ -0,0 +1,66 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                   SAVE BENCHMARK                                  *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to benchmark writing a game partway through to a save file, and reading it back
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SaveBenchmark {
+  @Param({ "9x9", "30x16", "100x100", "1000x1000", "4000x4000" })
+  String size;
+
+  @Param({ "0.01", "0.12", "0.21" })
+  String density;
+
+  Game game;
+  Path path;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.game = Boards.game(this.size, this.density);
+    this.game.reveal(Boards.findOpening(this.game, new Random(2)));
+    this.path = Files.createTempFile("minesweeper", ".save");
+    GameFile.save(this.game, this.path);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(this.path);
+  }
+
+  @Benchmark
+  public Path save() throws IOException {
+    GameFile.save(this.game, this.path);
+    return this.path;
+  }
+
+  @Benchmark
+  public Game load() throws IOException {
+    return GameFile.load(this.path);
+  }
+}
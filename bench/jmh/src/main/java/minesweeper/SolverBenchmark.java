@@ -0,0 +1,52 @@
+package minesweeper;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                  SOLVER BENCHMARK                                 *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to benchmark one solve of a board partway through a game: every rule the solver has, over
+// the numbers the opening showed (a solve only deduces, so the same board is solved each time)
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SolverBenchmark {
+  @Param({ "9x9", "30x16", "100x100", "1000x1000", "4000x4000" })
+  String size;
+
+  @Param({ "0.01", "0.12", "0.21" })
+  String density;
+
+  Game game;
+  Solver solver;
+
+  @Setup
+  public void setUp() {
+    this.game = Boards.game(this.size, this.density);
+    this.game.safeOpening = true;
+    this.game.reveal(Boards.findOpening(this.game, new Random(2)));
+    this.solver = new Solver();
+  }
+
+  @Benchmark
+  public int solve() {
+    return this.solver.solve(this.game);
+  }
+}
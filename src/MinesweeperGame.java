@@ -0,0 +1,956 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                         GAME                                      *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent one game of Minesweeper: a grid of cells, a set number of mines, and whether
+// the game has been won or lost
+// (a game needs no graphics -- Board draws one and passes the player's clicks to it, but it
+// can just as well be created, played and solved on its own)
+class Game {
+  // what a game's status can be
+  static final int PLAYING = 0;
+  static final int WON = 1;
+  static final int LOST = 2;
+
+  static final int SPARSE_MINE_RATIO = 4; // games with at most 1 mine per this many cells
+
+  int rows;
+  int cols;
+  int mines;
+  int visibleCells;
+  Random rand;
+  long seed; // the seed rand was made from (0 if this game was given its Random instance)
+  int moves; // how many reveals, flags and chords have changed this game since it began
+  Grid grid; // packed state of every cell in this game
+  boolean gameOver;
+  boolean win;
+  boolean minesPlaced; // have the mines been placed yet? (not until the first reveal)
+  boolean safeOpening; // should the first reveal's neighbors be kept free of mines, too?
+  boolean noGuess; // should the mines be placed so the game can be solved without guessing?
+  Journal journal; // records every move that changes this game (null => none are recorded)
+  History history; // keeps this game's moves to be undone and redone (null => none are kept)
+  int[] excluded; // scratch space for placeMines (created on first use, then reused)
+  int[] neighbors; // scratch space for chord (created on first use, then reused)
+
+  // convenience constructor to be used in actual game-play (outside of testing)
+  Game(int rows, int cols, int mines) {
+    this(rows, cols, mines, new Random().nextLong());
+  }
+
+  // constructor with the seed of its Random instance given, so that a saved game can say how
+  // its mines came to be placed
+  Game(int rows, int cols, int mines, long seed) {
+    this(rows, cols, mines, new Random(seed));
+    this.seed = seed;
+  }
+
+  // constructor with Random instance given, to be called by user only in testing
+  Game(int rows, int cols, int mines, Random rand) {
+    if (mines > rows * cols) {
+      throw new IllegalArgumentException("Cannot have more mines than cells.");
+    }
+    else if (mines < 0) {
+      throw new IllegalArgumentException("Cannot have a negative number of mines.");
+    }
+    else if (rows < 2) {
+      throw new IllegalArgumentException("Must have at least 2 rows in the grid.");
+    }
+    else if (cols < 2) {
+      throw new IllegalArgumentException("Must have at least 2 columns in the grid.");
+    }
+    else {
+      this.rows = rows;
+      this.cols = cols;
+      this.mines = mines;
+      this.rand = rand;
+      this.seed = 0;
+      this.moves = 0;
+      this.visibleCells = 0;
+
+      this.grid = new Grid(rows, cols); // allocate rows * cols cells' state
+      this.minesPlaced = false; // mines are placed on the first reveal, away from it
+
+      this.gameOver = false;
+      this.win = false;
+      this.safeOpening = false;
+      this.noGuess = false;
+    }
+  }
+
+  // convenience constructor to be used in testing intermediate games
+  // it is assumed that the given grid's mines, flags and clicks are already set
+  Game(Grid grid) {
+    this.grid = grid;
+    this.rows = grid.rows;
+    this.cols = grid.cols;
+    this.mines = grid.countMines();
+    this.minesPlaced = true;
+    this.gameOver = false;
+    this.win = false;
+  }
+
+  // place this game's given number of mines randomly on the board, anywhere at all
+  // MUTATION: set some of this game's cells to be mines
+  void placeMines() {
+    this.placeMines(-1);
+  }
+
+  // place this game's given number of mines randomly on the board, but not on the cell at
+  // the given index (the first one revealed), nor on its neighbors if this game has a safe
+  // opening and there's room to keep them clear; -1 => any cell can be a mine
+  // (a no-guess game's layout is also one that can be solved from that cell without guessing)
+  // MUTATION: set some of this game's cells to be mines
+  // to be called on the first reveal
+  void placeMines(int firstReveal) {
+    long start = Metrics.start();
+    if (this.noGuess && firstReveal >= 0) {
+      NoGuessGenerator.place(this, firstReveal);
+      this.minesPlaced = true;
+      Metrics.PLACE_MINES.stop(start);
+      return;
+    }
+
+    if (this.excluded == null) {
+      this.excluded = new int[9];
+    }
+    int[] excluded = this.excluded;
+    int numExcluded = 0;
+    if (firstReveal >= 0 && this.mines < this.grid.size()) {
+      if (this.safeOpening) {
+        numExcluded = this.grid.neighbors(firstReveal, excluded);
+      }
+      if (this.mines > this.grid.size() - numExcluded - 1) {
+        numExcluded = 0; // no room to keep the neighbors clear
+      }
+      excluded[numExcluded] = firstReveal;
+      numExcluded += 1;
+    }
+
+    // when few cells are mines, a random cell is rarely a mine already, so retrying is
+    // cheaper than building a list of every cell to choose from
+    if (this.mines <= (this.grid.size() - numExcluded) / SPARSE_MINE_RATIO) {
+      this.grid.placeMinesSparse(this.mines, this.rand, excluded, numExcluded);
+    }
+    else {
+      this.grid.placeMinesDense(this.mines, this.rand, excluded, numExcluded);
+    }
+    this.minesPlaced = true;
+    Metrics.PLACE_MINES.stop(start);
+  }
+
+  // reveal the cell at the given index, as a left-click does: a mine ends the game (and shows
+  // every mine), and anything else is flood-filled
+  // (does nothing once the game is over, or if the cell is flagged or already clicked)
+  void reveal(int index) {
+    if (!this.gameOver && !this.grid.isFlagged(index) && !this.grid.isClicked(index)) {
+      if (!this.minesPlaced) {
+        this.placeMines(index); // the first reveal is never a mine (unless every cell is)
+      }
+      this.record(Journal.REVEAL, index);
+      if (this.grid.isMine(index)) {
+        this.grid.revealMines(); // reveal all the mines on the board
+        this.endGame(false); // end this game (loss)
+      }
+      else {
+        this.clickCell(index);
+      }
+    }
+  }
+
+  // negate the flag on the cell at the given index, as a right-click does
+  // (does nothing once the game is over, or if the cell is already clicked)
+  void flag(int index) {
+    if (!this.gameOver && !this.grid.isClicked(index)) {
+      this.record(Journal.FLAG, index);
+      this.grid.negFlag(index);
+    }
+  }
+
+  // reveal every unflagged neighbor of the clicked cell at the given index, as a middle-click
+  // does, if exactly as many of its neighbors are flagged as it has mine neighbors
+  // (does nothing once the game is over, or if the cell isn't a clicked number)
+  void chord(int index) {
+    Grid g = this.grid;
+    if (this.gameOver || !g.isClicked(index) || g.isMine(index) || g.mineNeighbors[index] == 0) {
+      return;
+    }
+
+    if (this.neighbors == null) {
+      this.neighbors = new int[8];
+    }
+    int[] neighbors = this.neighbors;
+    int numNeighbors = g.neighbors(index, neighbors);
+    int numFlagged = 0;
+    for (int i = 0; i < numNeighbors; i++) {
+      numFlagged += g.isFlagged(neighbors[i]) ? 1 : 0;
+    }
+    if (numFlagged != g.mineNeighbors[index]) {
+      return;
+    }
+
+    this.record(Journal.CHORD, index);
+    // a wrong flag leaves a mine among the rest, and revealing it loses the game
+    for (int i = 0; i < numNeighbors; i++) {
+      int n = neighbors[i];
+      if (g.isMine(n) && !g.isFlagged(n) && !g.isClicked(n)) {
+        g.revealMines();
+        this.endGame(false);
+        return;
+      }
+    }
+    this.clickCells(neighbors, numNeighbors);
+  }
+
+  // handle the flood-fill effect when a non-mine is clicked
+  // EFFECT: increment the number of cells that have been clicked,
+  // and end the game if necessary
+  void clickCell(int index) {
+    this.visibleCells += this.grid.floodFill(index);
+    // if all cells are visible, end the game
+    if (this.visibleCells == this.rows * this.cols - this.mines) {
+      this.endGame(true); // end this game (win)
+    }
+  }
+
+  // handle the flood-fill effect when the given number of non-mines (from the front of the
+  // given array) are revealed at once, as a chord does: they share one flood fill, and the
+  // count of clicked cells and the win check are updated once for the whole batch
+  // EFFECT: increment the number of cells that have been clicked,
+  // and end the game if necessary
+  void clickCells(int[] indices, int count) {
+    this.visibleCells += this.grid.floodFill(indices, count);
+    if (this.visibleCells == this.rows * this.cols - this.mines) {
+      this.endGame(true); // end this game (win)
+    }
+  }
+
+  // EFFECT: set this game's gameOver to true and win to the given value
+  void endGame(boolean won) {
+    this.gameOver = true;
+    this.win = won;
+    if (this.journal != null) {
+      this.journal.flush(); // the end of a game is as good a time as any to write a batch
+    }
+  }
+
+  // EFFECT: count a move of the given kind on the cell at the given index, and record it in
+  // this game's journal if it has one
+  // (and start a new move in this game's history if it has one)
+  void record(int kind, int index) {
+    if (this.history != null) {
+      this.history.begin();
+    }
+    this.moves += 1;
+    if (this.journal != null) {
+      this.journal.record(kind, index);
+    }
+  }
+
+  // EFFECT: re-initialize all game data except size and number of mines, reusing the grid
+  // (the new mines are placed on the first reveal, like a new game's)
+  void restart() {
+    long start = Metrics.start();
+    if (this.journal != null) {
+      this.journal.record(Journal.OTHER, Journal.RESTART);
+    }
+    this.visibleCells = 0;
+    this.moves = 0;
+    this.grid.reset(); // the same arrays, cleared, so a new game makes no garbage
+    if (this.history != null) {
+      this.history.clear(); // a restart can't be undone
+    }
+    this.minesPlaced = false;
+
+    this.gameOver = false;
+    this.win = false;
+    Metrics.RESTART.stop(start);
+  }
+
+  // take back this game's last move in effect, if it keeps a history (the mines stay put)
+  void undo() {
+    if (this.history != null && this.history.undo() && this.journal != null) {
+      this.journal.record(Journal.OTHER, Journal.UNDO);
+    }
+  }
+
+  // make this game's last move undone again, if it keeps a history
+  void redo() {
+    if (this.history != null && this.history.redo() && this.journal != null) {
+      this.journal.record(Journal.OTHER, Journal.REDO);
+    }
+  }
+
+  // a copy of this game, down to its grid and the state of its random source, to be played
+  // on its own (with a copy of its history, but without its journal)
+  Game copy() {
+    Game copy = new Game(this.grid.copy());
+    copy.mines = this.mines;
+    copy.visibleCells = this.visibleCells;
+    copy.rand = copyOf(this.rand);
+    copy.seed = this.seed;
+    copy.moves = this.moves;
+    copy.gameOver = this.gameOver;
+    copy.win = this.win;
+    copy.minesPlaced = this.minesPlaced;
+    copy.safeOpening = this.safeOpening;
+    copy.noGuess = this.noGuess;
+    if (this.history != null) {
+      this.history.copy(copy);
+    }
+    return copy;
+  }
+
+  // a copy of the given random source, which will give the same numbers from here on
+  // (Random has no copy constructor, so it's copied through serialization)
+  static Random copyOf(Random rand) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(rand);
+      }
+      try (ObjectInputStream in =
+          new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+        return (Random) in.readObject();
+      }
+    }
+    catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Couldn't copy a random source.", e);
+    }
+  }
+
+  // is this game still being played, won, or lost?
+  int status() {
+    if (!this.gameOver) {
+      return PLAYING;
+    }
+    else if (this.win) {
+      return WON;
+    }
+    else {
+      return LOST;
+    }
+  }
+
+  // how many cells are flagged?
+  // (kept count of by the grid, so there's no need to look at every cell)
+  int countFlags() {
+    return this.grid.numFlagged;
+  }
+
+  // how many mines are left to flag (going by the flags placed, right or wrong)?
+  int minesLeft() {
+    return this.mines - this.countFlags();
+  }
+}
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                         GRID                                      *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent the state of every cell on a Minesweeper board, packed into primitive arrays
+// cells are numbered row by row (index = row * cols + col), and a cell's neighbors are found
+// from its index rather than stored
+class Grid {
+  static final byte CLICKED = 1; // state bit: this cell's content is visible
+  static final byte FLAGGED = 2; // state bit: this cell is flagged
+  static final int BULK_MINE_RATIO = 16; // placing more mines than 1 per this many cells
+                                         // recounts every cell's mine neighbors afterward
+  static final int MAX_CHANGED = 2048; // cells listed as changed, at most, on any size of grid
+  // a long of 8 bytes in a byte array, at any index, for 8 counts at once
+  static final VarHandle LONGS =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  static final long[] SPREAD = spreadTable(); // each byte, with bit k moved to bit 0 of byte k
+
+  int rows;
+  int cols;
+  long[] mineBits; // bit i is set if cell i is a mine
+  byte[] state; // CLICKED/FLAGGED bits of each cell
+  byte[] mineNeighbors; // each cell's count of mine neighbors (kept up to date by negMine)
+  int numClicked; // how many cells are clicked
+  int numFlagged; // how many cells are flagged
+  int numFlaggedMines; // how many flagged cells are mines
+  FloodFill flood; // reused by every flood fill on this grid (created on first use)
+  int[] changed; // indices of the cells clicked or (un)flagged since the last clearChanged()
+  int numChanged; // how many indices in changed are in use
+  boolean allChanged; // did too many cells change to keep track of them in changed?
+  History history; // logs each click and flag toggle to be undone (null => none are logged)
+
+  Grid(int rows, int cols) {
+    this.rows = rows;
+    this.cols = cols;
+    this.mineBits = new long[(rows * cols + 63) / 64];
+    this.state = new byte[rows * cols];
+    this.mineNeighbors = new byte[rows * cols];
+    this.changed = new int[16];
+    this.numChanged = 0;
+    this.allChanged = false;
+  }
+
+  // the table of SPREAD: for each byte b, the long whose byte k is bit k of b
+  static long[] spreadTable() {
+    long[] table = new long[256];
+    for (int b = 0; b < 256; b++) {
+      for (int k = 0; k < 8; k++) {
+        table[b] |= (long) (b >>> k & 1) << (8 * k);
+      }
+    }
+    return table;
+  }
+
+  // a copy of this grid's mines, clicks, flags and counts (but not of its changed cells)
+  Grid copy() {
+    Grid copy = new Grid(this.rows, this.cols);
+    System.arraycopy(this.mineBits, 0, copy.mineBits, 0, this.mineBits.length);
+    System.arraycopy(this.state, 0, copy.state, 0, this.state.length);
+    System.arraycopy(this.mineNeighbors, 0, copy.mineNeighbors, 0, this.mineNeighbors.length);
+    copy.numClicked = this.numClicked;
+    copy.numFlagged = this.numFlagged;
+    copy.numFlaggedMines = this.numFlaggedMines;
+    return copy;
+  }
+
+  // EFFECT: clear every mine, click and flag, and every count, in place (without allocating)
+  // and mark every cell to be redrawn
+  void reset() {
+    Arrays.fill(this.mineBits, 0L);
+    Arrays.fill(this.state, (byte) 0);
+    Arrays.fill(this.mineNeighbors, (byte) 0);
+    this.numClicked = 0;
+    this.numFlagged = 0;
+    this.numFlaggedMines = 0;
+    this.numChanged = 0;
+    this.allChanged = true;
+  }
+
+  // how many cells are in this grid?
+  int size() {
+    return this.rows * this.cols;
+  }
+
+  // get the index of the cell at the given row and column
+  int index(int row, int col) {
+    return row * this.cols + col;
+  }
+
+  // is the cell at the given index a mine?
+  boolean isMine(int index) {
+    return (this.mineBits[index >>> 6] & (1L << index)) != 0;
+  }
+
+  // is the cell at the given index flagged?
+  boolean isFlagged(int index) {
+    return (this.state[index] & FLAGGED) != 0;
+  }
+
+  // is the cell at the given index clicked?
+  boolean isClicked(int index) {
+    return (this.state[index] & CLICKED) != 0;
+  }
+
+  // negate the mine value of the cell at the given index, and update its neighbors' counts
+  // of mine neighbors to match (MUTATION)
+  void negMine(int index) {
+    this.mineBits[index >>> 6] ^= 1L << index;
+    int change = this.isMine(index) ? 1 : -1;
+    if (this.isFlagged(index)) {
+      this.numFlaggedMines += change;
+    }
+
+    int row = index / this.cols;
+    int col = index - row * this.cols;
+    int minRow = Math.max(row - 1, 0);
+    int maxRow = Math.min(row + 1, this.rows - 1);
+    int minCol = Math.max(col - 1, 0);
+    int maxCol = Math.min(col + 1, this.cols - 1);
+
+    for (int r = minRow; r <= maxRow; r++) {
+      for (int c = minCol; c <= maxCol; c++) {
+        int i = r * this.cols + c;
+        if (i != index) {
+          this.mineNeighbors[i] += change;
+        }
+      }
+    }
+  }
+
+  // negate the flagged value of the cell at the given index (MUTATION)
+  void negFlag(int index) {
+    this.flipFlagged(index);
+    if (this.history != null) {
+      this.history.log(index, true);
+    }
+  }
+
+  // set the cell at the given index to be clicked (MUTATION)
+  void click(int index) {
+    if (!this.isClicked(index)) {
+      this.flipClicked(index);
+      if (this.history != null) {
+        this.history.log(index, false);
+      }
+    }
+  }
+
+  // negate the flagged value of the cell at the given index, and update the counts of flags
+  // to match (MUTATION)
+  void flipFlagged(int index) {
+    this.state[index] ^= FLAGGED;
+    this.markChanged(index);
+    int change = this.isFlagged(index) ? 1 : -1;
+    this.numFlagged += change;
+    if (this.isMine(index)) {
+      this.numFlaggedMines += change;
+    }
+  }
+
+  // negate the clicked value of the cell at the given index, and update the count of clicks
+  // to match (MUTATION)
+  void flipClicked(int index) {
+    this.state[index] ^= CLICKED;
+    this.markChanged(index);
+    this.numClicked += this.isClicked(index) ? 1 : -1;
+  }
+
+  // how many unclicked cells have a clicked neighbor (the frontier)?
+  // (counted from the whole grid when asked, rather than kept up to date by every click:
+  // keeping it cost a byte per cell and a third of a flood fill's time, for a count that's
+  // rarely needed)
+  int countFrontier() {
+    int frontier = 0;
+    int[] neighbors = new int[8];
+    for (int i = 0; i < this.size(); i++) {
+      if (!this.isClicked(i)) {
+        int numNeighbors = this.neighbors(i, neighbors);
+        boolean nextToClick = false;
+        for (int j = 0; j < numNeighbors && !nextToClick; j++) {
+          nextToClick = this.isClicked(neighbors[j]);
+        }
+        frontier += nextToClick ? 1 : 0;
+      }
+    }
+    return frontier;
+  }
+
+  // EFFECT: recount the counts of clicks and flags from this grid's states and mine bits alone
+  // to be called once the states have been set directly, rather than through click and negFlag
+  void recountState() {
+    this.numClicked = 0;
+    this.numFlagged = 0;
+    this.numFlaggedMines = 0;
+    for (int i = 0; i < this.size(); i++) {
+      if (this.isFlagged(i)) {
+        this.numFlagged += 1;
+        this.numFlaggedMines += this.isMine(i) ? 1 : 0;
+      }
+      this.numClicked += this.isClicked(i) ? 1 : 0;
+    }
+  }
+
+  // EFFECT: record that the cell at the given index has changed since the last
+  // clearChanged(), or just that everything has once a quarter of the grid has (or
+  // MAX_CHANGED cells, on a large grid, so the list stays small however big the grid is)
+  void markChanged(int index) {
+    if (!this.allChanged) {
+      if (this.numChanged == this.changed.length) {
+        int limit = Math.max(Math.min(this.size() / 4, MAX_CHANGED), 16);
+        if (this.numChanged >= limit) {
+          this.allChanged = true;
+          return;
+        }
+        this.changed = Arrays.copyOf(this.changed, Math.min(this.numChanged * 2, limit));
+      }
+      this.changed[this.numChanged] = index;
+      this.numChanged += 1;
+    }
+  }
+
+  // EFFECT: forget which cells have changed (to be called once they've been redrawn)
+  void clearChanged() {
+    this.numChanged = 0;
+    this.allChanged = false;
+  }
+
+  // randomly make the given number of cells mines, by picking random cells and trying again
+  // whenever the cell picked is already a mine (for boards with few mines)
+  // MUTATION: set some of this grid's cells to be mines
+  void placeMinesSparse(int mines, Random rand) {
+    this.placeMinesSparse(mines, rand, new int[0], 0);
+  }
+
+  // randomly make the given number of cells mines, but none of the cells at the given number
+  // of indices (from the front of the given array), by picking random cells and trying again
+  // whenever the cell picked is already a mine or excluded (for boards with few mines)
+  // MUTATION: set some of this grid's cells to be mines
+  void placeMinesSparse(int mines, Random rand, int[] excluded, int numExcluded) {
+    boolean bulk = this.isBulk(mines);
+    int placed = 0;
+    while (placed < mines) {
+      int index = rand.nextInt(this.size());
+      if (!this.isMine(index) && !contains(excluded, numExcluded, index)) {
+        this.addMine(index, bulk);
+        placed += 1;
+      }
+    }
+    if (bulk) {
+      this.recountMineNeighbors();
+    }
+  }
+
+  // randomly make the given number of cells mines, by shuffling only the first mines entries
+  // of a list of every cell's index (for boards with many mines)
+  // MUTATION: set some of this grid's cells to be mines
+  void placeMinesDense(int mines, Random rand) {
+    this.placeMinesDense(mines, rand, new int[0], 0);
+  }
+
+  // randomly make the given number of cells mines, but none of the cells at the given number
+  // of indices (from the front of the given array), by shuffling only the first mines entries
+  // of a list of every other cell's index (for boards with many mines)
+  // (the list is 4 bytes a cell, more than the rest of the grid, so it isn't kept between
+  // games: it's garbage as soon as the mines are placed, once a game)
+  // MUTATION: set some of this grid's cells to be mines
+  void placeMinesDense(int mines, Random rand, int[] excluded, int numExcluded) {
+    int[] indices = new int[this.size() - numExcluded];
+    int numIndices = 0;
+    for (int i = 0; i < this.size(); i++) {
+      if (!contains(excluded, numExcluded, i)) {
+        indices[numIndices] = i;
+        numIndices += 1;
+      }
+    }
+
+    boolean bulk = this.isBulk(mines);
+    for (int i = 0; i < mines; i++) {
+      // swap a random cell from the rest of the list into position i, and make it a mine
+      int j = i + rand.nextInt(numIndices - i);
+      int mine = indices[j];
+      indices[j] = indices[i];
+      indices[i] = mine;
+      this.addMine(mine, bulk);
+    }
+    if (bulk) {
+      this.recountMineNeighbors();
+    }
+  }
+
+  // should the given number of new mines be counted into the mine neighbors all at once, by
+  // recountMineNeighbors, rather than one at a time? (yes once they're more than 1 in
+  // BULK_MINE_RATIO cells, when bumping 8 neighbors' counts for each costs more than a recount)
+  boolean isBulk(int mines) {
+    return mines > this.size() / BULK_MINE_RATIO;
+  }
+
+  // EFFECT: make the cell at the given index (not a mine yet) a mine, counting it in its
+  // neighbors' counts of mine neighbors unless the given bulk is true (and they're to be
+  // recounted all at once)
+  void addMine(int index, boolean bulk) {
+    if (!bulk) {
+      this.negMine(index);
+      return;
+    }
+    this.mineBits[index >>> 6] |= 1L << index;
+    if (this.isFlagged(index)) {
+      this.numFlaggedMines += 1;
+    }
+  }
+
+  // is the given value among the given number of entries at the front of the given array?
+  static boolean contains(int[] array, int count, int value) {
+    for (int i = 0; i < count; i++) {
+      if (array[i] == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // how many mines are in this grid?
+  int countMines() {
+    int numMines = 0;
+    for (long word : this.mineBits) {
+      numMines += Long.bitCount(word);
+    }
+    return numMines;
+  }
+
+  // put the indices of the cell at the given index's neighbors into the given buffer
+  // (which must have room for 8), and return how many neighbors there are
+  int neighbors(int index, int[] buffer) {
+    int row = index / this.cols;
+    int col = index - row * this.cols;
+    int minRow = Math.max(row - 1, 0);
+    int maxRow = Math.min(row + 1, this.rows - 1);
+    int minCol = Math.max(col - 1, 0);
+    int maxCol = Math.min(col + 1, this.cols - 1);
+
+    int count = 0;
+    for (int r = minRow; r <= maxRow; r++) {
+      for (int c = minCol; c <= maxCol; c++) {
+        if (r != row || c != col) {
+          buffer[count] = r * this.cols + c;
+          count += 1;
+        }
+      }
+    }
+    return count;
+  }
+
+  // how many of the cell at the given index's neighbors are mines?
+  // (counted from scratch, rather than read from mineNeighbors)
+  int countMineNeighbors(int index) {
+    int row = index / this.cols;
+    int col = index - row * this.cols;
+    int minRow = Math.max(row - 1, 0);
+    int maxRow = Math.min(row + 1, this.rows - 1);
+    int minCol = Math.max(col - 1, 0);
+    int maxCol = Math.min(col + 1, this.cols - 1);
+
+    int numMines = 0;
+    for (int r = minRow; r <= maxRow; r++) {
+      for (int c = minCol; c <= maxCol; c++) {
+        int i = r * this.cols + c;
+        numMines += i != index && this.isMine(i) ? 1 : 0;
+      }
+    }
+    return numMines;
+  }
+
+  // EFFECT: recount every cell's mine neighbors from this grid's mine bits alone, 64 cells at
+  // a time: each row's mine bits are lined up into words of their own, the 8 neighbors of
+  // every cell in a word are those words (and the rows above and below) shifted a column
+  // either way, and they're added up bit-sliced -- 4 words hold bits 0 to 3 of all 64 counts
+  // -- then spread out into 8 counts' bytes at a time
+  // to be called once the mine bits have been set directly, rather than through negMine
+  void recountMineNeighbors() {
+    int words = (this.cols + 63) >>> 6;
+    long[] above = new long[words]; // the row above's mine bits (none above row 0)
+    long[] here = new long[words];
+    long[] below = new long[words];
+    long[] counts = new long[4]; // bits 0 to 3 of each count in a word
+    this.loadRow(0, here);
+
+    for (int r = 0; r < this.rows; r++) {
+      if (r + 1 < this.rows) {
+        this.loadRow(r + 1, below);
+      }
+      else {
+        Arrays.fill(below, 0L);
+      }
+
+      int base = r * this.cols;
+      for (int w = 0; w < words; w++) {
+        long carryAbove = w > 0 ? above[w - 1] >>> 63 : 0; // the column just left of the word
+        long carryHere = w > 0 ? here[w - 1] >>> 63 : 0;
+        long carryBelow = w > 0 ? below[w - 1] >>> 63 : 0;
+        long nextAbove = w + 1 < words ? above[w + 1] << 63 : 0; // and just right of it
+        long nextHere = w + 1 < words ? here[w + 1] << 63 : 0;
+        long nextBelow = w + 1 < words ? below[w + 1] << 63 : 0;
+        addNeighbors(above[w] << 1 | carryAbove, above[w], above[w] >>> 1 | nextAbove,
+            here[w] << 1 | carryHere, here[w] >>> 1 | nextHere,
+            below[w] << 1 | carryBelow, below[w], below[w] >>> 1 | nextBelow, counts);
+        this.storeCounts(base + (w << 6), Math.min(this.cols - (w << 6), 64), counts);
+      }
+
+      long[] last = above;
+      above = here;
+      here = below;
+      below = last;
+    }
+  }
+
+  // EFFECT: set the given array to the given row's mine bits, lined up so that bit c of word
+  // c / 64 is the cell in column c (and any bits past the last column are 0)
+  void loadRow(int row, long[] words) {
+    long start = (long) row * this.cols;
+    for (int w = 0; w < words.length; w++) {
+      long bit = start + ((long) w << 6);
+      int word = (int) (bit >>> 6);
+      int shift = (int) (bit & 63);
+      long value = this.mineBits[word] >>> shift;
+      if (shift != 0 && word + 1 < this.mineBits.length) {
+        value |= this.mineBits[word + 1] << (64 - shift);
+      }
+      int left = this.cols - (w << 6); // columns left in the row
+      words[w] = left >= 64 ? value : value & ((1L << left) - 1);
+    }
+  }
+
+  // EFFECT: set the given array to the sum of the given 8 words, bit-sliced: bit j of its
+  // word k is bit k of how many of the words have bit j set
+  // (a tree of carry-save adders, all 64 sums at once)
+  static void addNeighbors(long n0, long n1, long n2, long n3, long n4, long n5, long n6,
+      long n7, long[] counts) {
+    // three sums of 3, 3 and 2 of the words, in ones and twos
+    long ones0 = n0 ^ n1 ^ n2;
+    long twos0 = (n0 & n1) | (n2 & (n0 ^ n1));
+    long ones1 = n3 ^ n4 ^ n5;
+    long twos1 = (n3 & n4) | (n5 & (n3 ^ n4));
+    long ones2 = n6 ^ n7;
+    long twos2 = n6 & n7;
+    // add up the ones, carrying into the twos
+    long ones = ones0 ^ ones1 ^ ones2;
+    long twos3 = (ones0 & ones1) | (ones2 & (ones0 ^ ones1));
+    // add up the four twos, carrying into the fours
+    long twosPart = twos0 ^ twos1 ^ twos2;
+    long fours0 = (twos0 & twos1) | (twos2 & (twos0 ^ twos1));
+    long twos = twosPart ^ twos3;
+    long fours1 = twosPart & twos3;
+    counts[0] = ones;
+    counts[1] = twos;
+    counts[2] = fours0 ^ fours1;
+    counts[3] = fours0 & fours1; // only when all 8 are set
+  }
+
+  // EFFECT: write the given number (up to 64) of bit-sliced counts to the mine neighbors of
+  // the cells from the given index on, 8 at a time where they fit
+  void storeCounts(int index, int count, long[] counts) {
+    int whole = count & ~7; // counts written as whole longs of 8 bytes
+    for (int j = 0; j < whole; j += 8) {
+      LONGS.set(this.mineNeighbors, index + j, spreadByte(counts, j));
+    }
+    for (int j = whole; j < count; j++) {
+      this.mineNeighbors[index + j] = (byte) ((counts[0] >>> j & 1) | (counts[1] >>> j & 1) << 1
+          | (counts[2] >>> j & 1) << 2 | (counts[3] >>> j & 1) << 3);
+    }
+  }
+
+  // the 8 counts from bit j on of the given bit-sliced counts, one per byte (little-endian)
+  static long spreadByte(long[] counts, int j) {
+    return SPREAD[(int) (counts[0] >>> j) & 0xFF] | SPREAD[(int) (counts[1] >>> j) & 0xFF] << 1
+        | SPREAD[(int) (counts[2] >>> j) & 0xFF] << 2 | SPREAD[(int) (counts[3] >>> j) & 0xFF] << 3;
+  }
+
+  // flood-fill this grid from the cell at the given index; return the num of newly clicked
+  // cells
+  int floodFill(int index) {
+    long start = Metrics.start();
+    if (this.flood == null) {
+      this.flood = new FloodFill(this);
+    }
+    int numClicked = this.flood.fill(index);
+    Metrics.FLOOD_FILL.stop(start);
+    return numClicked;
+  }
+
+  // flood-fill this grid from the cells at the given number of indices (from the front of
+  // the given array) at once; return the num of newly clicked cells
+  int floodFill(int[] indices, int count) {
+    long start = Metrics.start();
+    if (this.flood == null) {
+      this.flood = new FloodFill(this);
+    }
+    int numClicked = this.flood.fill(indices, count);
+    Metrics.FLOOD_FILL.stop(start);
+    return numClicked;
+  }
+
+  // EFFECT: click every mine in this grid (to be called when the game is lost)
+  void revealMines() {
+    for (int w = 0; w < this.mineBits.length; w++) {
+      long word = this.mineBits[w];
+      while (word != 0) {
+        this.click(w * 64 + Long.numberOfTrailingZeros(word));
+        word &= word - 1; // clear the lowest mine bit
+      }
+    }
+  }
+}
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                      FLOOD FILL                                   *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent a breadth-first flood fill over the cell indices of a grid
+// the work queue only holds the edge of the revealed region, and it's kept between fills,
+// so revealing cells neither recurses nor allocates once the queue has grown to fit
+class FloodFill {
+  Grid grid;
+  int[] queue; // ring buffer of revealed 0-neighbor cells whose neighbors are still to reveal
+  int head; // position of the next index to take from the queue
+  int size; // number of indices in the queue
+  int[] neighbors; // scratch space for one cell's neighbor indices
+
+  FloodFill(Grid grid) {
+    this.grid = grid;
+    this.queue = new int[64];
+    this.head = 0;
+    this.size = 0;
+    this.neighbors = new int[8];
+  }
+
+  // flood-fill the grid from the cell at the given index; return the num of newly clicked
+  // cells
+  int fill(int start) {
+    return this.reveal(start) + this.drain();
+  }
+
+  // flood-fill the grid from the cells at the given number of indices (from the front of
+  // the given array), all through one drain of the queue; return the num of newly clicked
+  // cells
+  int fill(int[] starts, int count) {
+    int numClicked = 0;
+    for (int i = 0; i < count; i++) {
+      numClicked += this.reveal(starts[i]);
+    }
+    return numClicked + this.drain();
+  }
+
+  // click the cell at the given index if it can be revealed, and queue it up if its
+  // neighbors should be revealed too; return the num of newly clicked cells (0 or 1)
+  int reveal(int index) {
+    Grid g = this.grid;
+    if (g.isClicked(index) || g.isFlagged(index) || g.isMine(index)) { // can't reveal these
+      return 0;
+    }
+    g.click(index);
+    // if this cell has no mine neighbors, its neighbors get revealed too
+    if (g.mineNeighbors[index] == 0) {
+      this.add(index);
+    }
+    return 1;
+  }
+
+  // reveal the neighbors of every queued cell until the queue is empty; return the num of
+  // newly clicked cells
+  int drain() {
+    int numClicked = 0;
+    while (this.size > 0) {
+      int index = this.queue[this.head];
+      this.head = (this.head + 1) & (this.queue.length - 1);
+      this.size -= 1;
+
+      int numNeighbors = this.grid.neighbors(index, this.neighbors);
+      for (int i = 0; i < numNeighbors; i++) {
+        numClicked += this.reveal(this.neighbors[i]);
+      }
+    }
+    this.head = 0;
+    return numClicked;
+  }
+
+  // EFFECT: add the given index to the back of the queue, doubling it if it's full
+  void add(int index) {
+    if (this.size == this.queue.length) {
+      // unroll the ring into a bigger array (the length stays a power of 2)
+      int[] bigger = new int[this.queue.length * 2];
+      int firstPart = this.queue.length - this.head;
+      System.arraycopy(this.queue, this.head, bigger, 0, firstPart);
+      System.arraycopy(this.queue, 0, bigger, firstPart, this.head);
+      this.queue = bigger;
+      this.head = 0;
+    }
+    this.queue[(this.head + this.size) & (this.queue.length - 1)] = index;
+    this.size += 1;
+  }
+}
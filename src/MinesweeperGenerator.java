@@ -0,0 +1,112 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                      GENERATOR                                    *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent a search for a mine layout that can be solved from a given first reveal
+// without ever guessing
+// candidate layouts are numbered, each seeded from the search's seed and its number alone,
+// and played out by the solver from a safe opening at the first reveal; workers on every
+// core take candidates in order, and the first (lowest-numbered) one solved wins, so the
+// layout found doesn't depend on the number of workers
+// (once a candidate is solved, every worker drops any candidate numbered after it)
+class NoGuessGenerator {
+  static final int MAX_CANDIDATES = 1000; // candidates tried before settling for a guess
+
+  int rows;
+  int cols;
+  int mines;
+  int firstReveal;
+  long seed;
+  AtomicInteger next; // the number of the next candidate to try
+  AtomicInteger best; // the number of the first candidate solved so far (MAX if none yet)
+
+  NoGuessGenerator(int rows, int cols, int mines, int firstReveal, long seed) {
+    this.rows = rows;
+    this.cols = cols;
+    this.mines = mines;
+    this.firstReveal = firstReveal;
+    this.seed = seed;
+    this.next = new AtomicInteger(0);
+    this.best = new AtomicInteger(MAX_CANDIDATES);
+  }
+
+  // place the given game's mines in a layout that can be solved from the cell at the given
+  // index without guessing (drawing the search's seed from the game's random source), or
+  // in the first candidate layout if none is found
+  // MUTATION: set some of the given game's cells to be mines
+  static void place(Game game, int firstReveal) {
+    NoGuessGenerator generator = new NoGuessGenerator(game.rows, game.cols, game.mines,
+        firstReveal, game.rand.nextLong());
+    int found = generator.search(Runtime.getRuntime().availableProcessors());
+    Grid layout = generator.candidate(Math.max(found, 0)).grid;
+    boolean bulk = game.grid.isBulk(game.mines);
+    for (int w = 0; w < layout.mineBits.length; w++) {
+      for (long word = layout.mineBits[w]; word != 0; word &= word - 1) {
+        game.grid.addMine(w * 64 + Long.numberOfTrailingZeros(word), bulk);
+      }
+    }
+    if (bulk) {
+      game.grid.recountMineNeighbors();
+    }
+  }
+
+  // search for a layout on the given number of workers; return the number of the first
+  // candidate solved, or -1 if none of the first MAX_CANDIDATES are
+  int search(int workers) {
+    GeneratorWorker[] tasks = new GeneratorWorker[workers];
+    for (int i = 0; i < workers; i++) {
+      tasks[i] = new GeneratorWorker(this);
+    }
+    ForkJoinTask.invokeAll(tasks);
+    return this.best.get() < MAX_CANDIDATES ? this.best.get() : -1;
+  }
+
+  // the game with the given candidate's layout, just after its first reveal
+  Game candidate(int number) {
+    Game game = new Game(this.rows, this.cols, this.mines,
+        new Random(Simulator.gameSeed(this.seed, number)));
+    game.safeOpening = true;
+    game.reveal(this.firstReveal);
+    return game;
+  }
+
+  // can the given candidate be solved without guessing, by the given solver?
+  // (gives up, with false, once a candidate before it has been solved)
+  boolean solvable(int number, Solver solver) {
+    Game game = this.candidate(number);
+    while (!game.gameOver && number < this.best.get()) {
+      if (solver.step(game) == 0) {
+        return false;
+      }
+    }
+    return game.win;
+  }
+}
+
+// to represent one worker of a no-guess search: it tries candidates in order until every
+// candidate left is numbered after one already solved
+class GeneratorWorker extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  NoGuessGenerator generator;
+
+  GeneratorWorker(NoGuessGenerator generator) {
+    this.generator = generator;
+  }
+
+  protected void compute() {
+    Solver solver = new Solver();
+    int number = this.generator.next.getAndIncrement();
+    while (number < this.generator.best.get()) {
+      if (this.generator.solvable(number, solver)) {
+        this.generator.best.accumulateAndGet(number, Math::min);
+      }
+      number = this.generator.next.getAndIncrement();
+    }
+  }
+}
@@ -0,0 +1,166 @@
+import java.util.Arrays;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                      HISTORY                                      *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent the moves of a game that can be undone and redone
+// each move is kept as just the cells it changed -- a flood fill's clicks, a flag's toggle,
+// a chord's clicks -- as one int per change in a shared log: the cell's index if it was
+// clicked, or ~index (always negative) if its flag was toggled; both changes flip one state
+// bit, so undoing a move and redoing it both flip the same bits back, in O(cells changed)
+// the game's counters and status from before each move are kept alongside, and from after
+// it once it's undone (for a redo)
+// (the mines placed on the first reveal stay where they are when it's undone)
+class History {
+  Game game;
+  int[] changes; // every move's changes, one after another
+  int numChanges;
+  int[] starts; // where each move's changes start in changes
+  int[] visibleBefore; // the game's visibleCells before each move, and so on
+  int[] movesBefore;
+  int[] statusBefore;
+  int[] visibleAfter; // the game's visibleCells after each move (once it's been undone)
+  int[] movesAfter;
+  int[] statusAfter;
+  int numMoves; // how many moves are kept, including any that have been undone
+  int current; // how many of them are in effect (the rest can be redone)
+
+  // start keeping the history of the given game, from its current state on
+  // EFFECT: set the given game's (and its grid's) history to this one
+  History(Game game) {
+    this.game = game;
+    this.changes = new int[64];
+    this.starts = new int[16];
+    this.visibleBefore = new int[16];
+    this.movesBefore = new int[16];
+    this.statusBefore = new int[16];
+    this.visibleAfter = new int[16];
+    this.movesAfter = new int[16];
+    this.statusAfter = new int[16];
+    this.clear();
+    game.history = this;
+    game.grid.history = this;
+  }
+
+  // EFFECT: forget every move (to be called when the game's grid is replaced)
+  void clear() {
+    this.numChanges = 0;
+    this.numMoves = 0;
+    this.current = 0;
+  }
+
+  // EFFECT: start a new move of the game, from its current state, dropping any moves that
+  // have been undone
+  void begin() {
+    if (this.current < this.numMoves) {
+      this.numChanges = this.starts[this.current];
+    }
+    if (this.current == this.starts.length) {
+      int length = this.current * 2;
+      this.starts = Arrays.copyOf(this.starts, length);
+      this.visibleBefore = Arrays.copyOf(this.visibleBefore, length);
+      this.movesBefore = Arrays.copyOf(this.movesBefore, length);
+      this.statusBefore = Arrays.copyOf(this.statusBefore, length);
+      this.visibleAfter = Arrays.copyOf(this.visibleAfter, length);
+      this.movesAfter = Arrays.copyOf(this.movesAfter, length);
+      this.statusAfter = Arrays.copyOf(this.statusAfter, length);
+    }
+    this.starts[this.current] = this.numChanges;
+    this.visibleBefore[this.current] = this.game.visibleCells;
+    this.movesBefore[this.current] = this.game.moves;
+    this.statusBefore[this.current] = this.game.status();
+    this.current += 1;
+    this.numMoves = this.current;
+  }
+
+  // EFFECT: add a change to the current move: the cell at the given index was clicked, or
+  // (if flag is true) its flag was toggled
+  void log(int index, boolean flag) {
+    if (this.numChanges == this.changes.length) {
+      this.changes = Arrays.copyOf(this.changes, this.numChanges * 2);
+    }
+    this.changes[this.numChanges] = flag ? ~index : index;
+    this.numChanges += 1;
+  }
+
+  // EFFECT: take back the last move in effect, if there is one; return whether there was
+  boolean undo() {
+    if (this.current == 0) {
+      return false;
+    }
+    this.current -= 1;
+    int move = this.current;
+    this.visibleAfter[move] = this.game.visibleCells;
+    this.movesAfter[move] = this.game.moves;
+    this.statusAfter[move] = this.game.status();
+    this.flip(move);
+    this.restore(this.visibleBefore[move], this.movesBefore[move], this.statusBefore[move]);
+    return true;
+  }
+
+  // EFFECT: make the first move undone again, if there is one; return whether there was
+  boolean redo() {
+    if (this.current == this.numMoves) {
+      return false;
+    }
+    int move = this.current;
+    this.current += 1;
+    this.flip(move);
+    this.restore(this.visibleAfter[move], this.movesAfter[move], this.statusAfter[move]);
+    return true;
+  }
+
+  // can a move be undone?
+  boolean canUndo() {
+    return this.current > 0;
+  }
+
+  // can a move be redone?
+  boolean canRedo() {
+    return this.current < this.numMoves;
+  }
+
+  // EFFECT: flip every state bit the given move changed (keeping the grid's counts up to
+  // date, and marking the cells to be redrawn)
+  void flip(int move) {
+    Grid grid = this.game.grid;
+    int end = move + 1 < this.numMoves ? this.starts[move + 1] : this.numChanges;
+    for (int i = this.starts[move]; i < end; i++) {
+      int change = this.changes[i];
+      if (change < 0) {
+        grid.flipFlagged(~change);
+      }
+      else {
+        grid.flipClicked(change);
+      }
+    }
+  }
+
+  // EFFECT: set the game's visible cells, moves and status to the given ones
+  void restore(int visibleCells, int moves, int status) {
+    this.game.visibleCells = visibleCells;
+    this.game.moves = moves;
+    this.game.gameOver = status != Game.PLAYING;
+    this.game.win = status == Game.WON;
+  }
+
+  // a copy of this history, for the given copy of its game
+  // EFFECT: set the given game's (and its grid's) history to the copy
+  History copy(Game game) {
+    History copy = new History(game);
+    copy.changes = Arrays.copyOf(this.changes, Math.max(this.numChanges, 16));
+    copy.numChanges = this.numChanges;
+    int length = Math.max(this.numMoves, 16);
+    copy.starts = Arrays.copyOf(this.starts, length);
+    copy.visibleBefore = Arrays.copyOf(this.visibleBefore, length);
+    copy.movesBefore = Arrays.copyOf(this.movesBefore, length);
+    copy.statusBefore = Arrays.copyOf(this.statusBefore, length);
+    copy.visibleAfter = Arrays.copyOf(this.visibleAfter, length);
+    copy.movesAfter = Arrays.copyOf(this.movesAfter, length);
+    copy.statusAfter = Arrays.copyOf(this.statusAfter, length);
+    copy.numMoves = this.numMoves;
+    copy.current = this.current;
+    return copy;
+  }
+}
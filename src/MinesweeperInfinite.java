@@ -0,0 +1,504 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                   INFINITE BOARD                                  *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent a game of Minesweeper on a board with no edges, made of square chunks of
+// CHUNK_SIDE x CHUNK_SIDE cells that are only made once a cell in them is clicked or flagged
+// whether a cell is a mine is a hash of the game's seed, its chunk's coordinates and its
+// place in the chunk, so mines never need to be stored, and every chunk's are the same
+// however the board is explored; the cells around (0, 0) are never mines, so the game can
+// start there
+// only the chunks used most recently (up to maxChunks) are kept in memory: the rest are
+// written to a store on disk (index and all), and read back when they're used again, so the
+// memory a game takes is bounded however far the board is explored
+// (cells are at int coordinates, and a cell's coordinates are packed into one long as
+// x << 32 | y wherever they're queued)
+class InfiniteGame {
+  static final int CHUNK_BITS = 6;
+  static final int CHUNK_SIDE = 1 << CHUNK_BITS; // each row of a chunk is one long of bits
+  static final int MAX_FILL = 1 << 20; // most cells a flood fill reveals at once (by default)
+
+  long seed;
+  long threshold; // a cell is a mine if its hash (unsigned) is below this
+  LinkedHashMap<Long, Chunk> chunks; // least recently used first
+  int maxChunks;
+  int maxFill; // most cells a flood fill reveals at once
+  ChunkStore store;
+  Chunk last; // the chunk used last (checked before looking in chunks)
+  LongQueue queue; // reused by every flood fill
+  long visibleCells;
+  int moves;
+  boolean gameOver;
+
+  // a game with the given seed and chance of each cell being a mine, keeping at most the
+  // given number of chunks in memory, and the rest in a store in the file at the given path
+  // (which is replaced)
+  InfiniteGame(long seed, double density, int maxChunks, Path store) throws IOException {
+    if (density <= 0 || density >= 1) {
+      throw new IllegalArgumentException("Mine density must be between 0 and 1.");
+    }
+    if (maxChunks < 1) {
+      throw new IllegalArgumentException("Must keep at least 1 chunk in memory.");
+    }
+    this.seed = seed;
+    this.threshold = (long) (density * 0x1p63) << 1; // unsigned, so 0.5 => 2^63
+    this.maxChunks = maxChunks;
+    this.maxFill = MAX_FILL;
+    this.store = new ChunkStore(store);
+    this.queue = new LongQueue();
+    this.chunks = new LinkedHashMap<Long, Chunk>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+        if (this.size() <= InfiniteGame.this.maxChunks) {
+          return false;
+        }
+        InfiniteGame.this.evict(eldest.getValue());
+        return true;
+      }
+    };
+    this.visibleCells = 0;
+    this.moves = 0;
+    this.gameOver = false;
+  }
+
+  // the key of the chunk with the given chunk coordinates
+  static long chunkKey(int cx, int cy) {
+    return (long) cx << 32 | (cy & 0xFFFFFFFFL);
+  }
+
+  // is the cell at the given coordinates a mine?
+  boolean isMine(int x, int y) {
+    if (-1 <= x && x <= 1 && -1 <= y && y <= 1) {
+      return false; // the opening
+    }
+    long chunkSeed = mix(this.seed + chunkKey(x >> CHUNK_BITS, y >> CHUNK_BITS)
+        * 0x9E3779B97F4A7C15L);
+    int local = (y & (CHUNK_SIDE - 1)) << CHUNK_BITS | (x & (CHUNK_SIDE - 1));
+    long hash = mix(chunkSeed + (local + 1) * 0x9E3779B97F4A7C15L);
+    return Long.compareUnsigned(hash, this.threshold) < 0;
+  }
+
+  // the SplitMix64 finalizer: a hash of the given value
+  static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  // how many of the cell at the given coordinates' neighbors are mines?
+  int mineNeighbors(int x, int y) {
+    int count = 0;
+    for (int dy = -1; dy <= 1; dy++) {
+      for (int dx = -1; dx <= 1; dx++) {
+        count += (dx != 0 || dy != 0) && this.isMine(x + dx, y + dy) ? 1 : 0;
+      }
+    }
+    return count;
+  }
+
+  // is the cell at the given coordinates clicked?
+  boolean isClicked(int x, int y) {
+    return this.chunkAt(x, y).isClicked(x, y);
+  }
+
+  // is the cell at the given coordinates flagged?
+  boolean isFlagged(int x, int y) {
+    return this.chunkAt(x, y).isFlagged(x, y);
+  }
+
+  // the chunk holding the cell at the given coordinates, read back from the store or made
+  // new if it isn't in memory
+  // EFFECT: evict the least recently used chunk if there are too many in memory
+  Chunk chunkAt(int x, int y) {
+    int cx = x >> CHUNK_BITS;
+    int cy = y >> CHUNK_BITS;
+    if (this.last != null && this.last.cx == cx && this.last.cy == cy) {
+      return this.last;
+    }
+    long key = chunkKey(cx, cy);
+    Chunk chunk = this.chunks.get(key);
+    if (chunk == null) {
+      chunk = new Chunk(cx, cy);
+      try {
+        this.store.read(key, chunk);
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      this.chunks.put(key, chunk);
+    }
+    this.last = chunk;
+    return chunk;
+  }
+
+  // EFFECT: write the given chunk to the store, if anything in it is clicked or flagged, or
+  // it was stored before (so a chunk whose flags were all taken off isn't read back with them)
+  // (to be called as it's dropped from memory)
+  void evict(Chunk chunk) {
+    if (this.last == chunk) {
+      this.last = null;
+    }
+    long key = chunkKey(chunk.cx, chunk.cy);
+    try {
+      if (!chunk.isEmpty() || this.store.contains(key)) {
+        this.store.write(key, chunk);
+      }
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // reveal the cell at the given coordinates: a mine ends the game, and anything else is
+  // flood-filled (across chunks, making them as it goes); revealing a clicked cell with no
+  // mine neighbors but some hidden ones carries on a flood fill that stopped at maxFill
+  // (does nothing once the game is over, or if the cell is flagged or already clicked
+  // otherwise)
+  void reveal(int x, int y) {
+    if (this.gameOver || this.isFlagged(x, y)) {
+      return;
+    }
+    if (this.isClicked(x, y)) {
+      if (this.mineNeighbors(x, y) == 0 && this.hasHiddenNeighbor(x, y)) {
+        this.moves += 1;
+        this.visibleCells += this.floodFill(x, y);
+      }
+      return;
+    }
+    this.moves += 1;
+    if (this.isMine(x, y)) {
+      this.chunkAt(x, y).click(x, y);
+      this.gameOver = true;
+    }
+    else {
+      this.visibleCells += this.floodFill(x, y);
+    }
+  }
+
+  // negate the flag on the cell at the given coordinates
+  // (does nothing once the game is over, or if the cell is already clicked)
+  void flag(int x, int y) {
+    Chunk chunk = this.chunkAt(x, y);
+    if (!this.gameOver && !chunk.isClicked(x, y)) {
+      this.moves += 1;
+      chunk.negFlag(x, y);
+    }
+  }
+
+  // does the cell at the given coordinates have a neighbor that's neither clicked nor
+  // flagged?
+  boolean hasHiddenNeighbor(int x, int y) {
+    for (int dy = -1; dy <= 1; dy++) {
+      for (int dx = -1; dx <= 1; dx++) {
+        Chunk chunk = this.chunkAt(x + dx, y + dy);
+        if (!chunk.isClicked(x + dx, y + dy) && !chunk.isFlagged(x + dx, y + dy)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  // flood-fill the board from the safe cell at the given coordinates (clicking it, if it
+  // isn't yet), breadth first, stopping as soon as maxFill cells are revealed; return the
+  // number of cells revealed
+  // (a fill that stops leaves clicked 0 cells with hidden neighbors, and revealing any of
+  // them carries on from there)
+  long floodFill(int x, int y) {
+    LongQueue queue = this.queue;
+    queue.clear();
+    long filled = 0;
+    Chunk start = this.chunkAt(x, y);
+    if (!start.isClicked(x, y)) {
+      start.click(x, y);
+      filled += 1;
+    }
+    queue.add((long) x << 32 | (y & 0xFFFFFFFFL));
+
+    while (queue.size > 0 && filled < this.maxFill) {
+      long cell = queue.remove();
+      int cellX = (int) (cell >> 32);
+      int cellY = (int) cell;
+      if (this.mineNeighbors(cellX, cellY) != 0) {
+        continue;
+      }
+      for (int dy = -1; dy <= 1 && filled < this.maxFill; dy++) {
+        for (int dx = -1; dx <= 1 && filled < this.maxFill; dx++) {
+          int nx = cellX + dx;
+          int ny = cellY + dy;
+          Chunk chunk = this.chunkAt(nx, ny);
+          if (!chunk.isClicked(nx, ny) && !chunk.isFlagged(nx, ny)) {
+            chunk.click(nx, ny); // a 0's neighbors are never mines
+            queue.add((long) nx << 32 | (ny & 0xFFFFFFFFL));
+            filled += 1;
+          }
+        }
+      }
+    }
+    return filled;
+  }
+
+  // EFFECT: close this game's store
+  void close() throws IOException {
+    this.store.close();
+  }
+}
+
+// to represent the clicks and flags of one chunk of an infinite board, one long of bits per
+// row of cells
+class Chunk {
+  int cx;
+  int cy;
+  long[] clicked;
+  long[] flagged;
+
+  Chunk(int cx, int cy) {
+    this.cx = cx;
+    this.cy = cy;
+    this.clicked = new long[InfiniteGame.CHUNK_SIDE];
+    this.flagged = new long[InfiniteGame.CHUNK_SIDE];
+  }
+
+  // is the cell at the given (board) coordinates, in this chunk, clicked?
+  boolean isClicked(int x, int y) {
+    return (this.clicked[y & (InfiniteGame.CHUNK_SIDE - 1)] & 1L << x) != 0;
+  }
+
+  // is the cell at the given (board) coordinates, in this chunk, flagged?
+  boolean isFlagged(int x, int y) {
+    return (this.flagged[y & (InfiniteGame.CHUNK_SIDE - 1)] & 1L << x) != 0;
+  }
+
+  // set the cell at the given coordinates to be clicked (MUTATION)
+  void click(int x, int y) {
+    this.clicked[y & (InfiniteGame.CHUNK_SIDE - 1)] |= 1L << x;
+  }
+
+  // negate the flagged value of the cell at the given coordinates (MUTATION)
+  void negFlag(int x, int y) {
+    this.flagged[y & (InfiniteGame.CHUNK_SIDE - 1)] ^= 1L << x;
+  }
+
+  // has nothing in this chunk been clicked or flagged?
+  boolean isEmpty() {
+    for (int row = 0; row < InfiniteGame.CHUNK_SIDE; row++) {
+      if ((this.clicked[row] | this.flagged[row]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
+
+// to represent the chunks of an infinite board kept on disk: each chunk's clicked and
+// flagged rows in a fixed-size slot of one file, found through an index in a second file --
+// an open-addressed hash table of (key, slot + 1) entries, probed linearly, and doubled
+// (into a new file) whenever it would be more than half full -- so the memory the store
+// takes stays the same however many chunks it holds
+// (scratch files for one game: both are replaced when the store is opened, and the index is
+// deleted when it's closed)
+class ChunkStore {
+  static final int SLOT_BYTES = 2 * InfiniteGame.CHUNK_SIDE * 8;
+  static final int ENTRY_BYTES = 16; // a key, and its slot + 1 (0 => an empty entry)
+  static final long INITIAL_CAPACITY = 1024; // entries in a new index
+  static final int GROW_BATCH = 4096; // entries read at a time while the index is doubled
+
+  FileChannel channel; // the slots
+  Path indexPath;
+  FileChannel index;
+  long capacity; // how many entries the index has room for (a power of 2)
+  int numStored;
+  ByteBuffer buffer; // one slot's bytes, reused by every read and write
+  ByteBuffer entry; // one entry's bytes, reused by every probe
+  long entrySlot; // the slot + 1 in the entry found last by find (0 => the key isn't there)
+
+  ChunkStore(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    this.indexPath = path.resolveSibling(path.getFileName() + ".index");
+    this.index = openIndex(this.indexPath, INITIAL_CAPACITY);
+    this.capacity = INITIAL_CAPACITY;
+    this.numStored = 0;
+    this.buffer = ByteBuffer.allocate(SLOT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    this.entry = ByteBuffer.allocate(ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  // a new, empty index with room for the given number of entries in the file at the given
+  // path (which is replaced)
+  static FileChannel openIndex(Path path, long capacity) throws IOException {
+    FileChannel index = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    index.write(ByteBuffer.allocate(1), capacity * ENTRY_BYTES - 1); // all zeros up to there
+    return index;
+  }
+
+  // how many chunks are stored?
+  int size() {
+    return this.numStored;
+  }
+
+  // has the chunk with the given key been stored?
+  boolean contains(long key) throws IOException {
+    this.find(this.index, this.capacity, key);
+    return this.entrySlot != 0;
+  }
+
+  // the position of the given key's entry in the given index with room for the given number
+  // of entries, or of the empty entry where it would go
+  // EFFECT: set entrySlot to the entry's slot + 1 (0 if it's empty)
+  long find(FileChannel index, long capacity, long key) throws IOException {
+    long i = InfiniteGame.mix(key) & (capacity - 1);
+    while (true) {
+      long position = i * ENTRY_BYTES;
+      this.entry.clear();
+      while (this.entry.hasRemaining()) {
+        index.read(this.entry, position + this.entry.position());
+      }
+      long slot = this.entry.getLong(8);
+      if (slot == 0 || this.entry.getLong(0) == key) {
+        this.entrySlot = slot;
+        return position;
+      }
+      i = (i + 1) & (capacity - 1);
+    }
+  }
+
+  // EFFECT: write an entry of the given key and slot + 1 at the given position of the given
+  // index
+  void putEntry(FileChannel index, long position, long key, long slot) throws IOException {
+    this.entry.clear();
+    this.entry.putLong(0, key).putLong(8, slot);
+    while (this.entry.hasRemaining()) {
+      index.write(this.entry, position + this.entry.position());
+    }
+  }
+
+  // EFFECT: write the given chunk to the slot for the given key (a new one at the end of
+  // the file, the first time the chunk is written)
+  void write(long key, Chunk chunk) throws IOException {
+    long position = this.find(this.index, this.capacity, key);
+    long slot = this.entrySlot - 1;
+    if (this.entrySlot == 0) {
+      if ((this.numStored + 1) * 2L > this.capacity) {
+        this.grow();
+        position = this.find(this.index, this.capacity, key);
+      }
+      slot = this.numStored;
+      this.putEntry(this.index, position, key, slot + 1);
+      this.numStored += 1;
+    }
+    this.buffer.clear();
+    LongBuffer longs = this.buffer.asLongBuffer();
+    longs.put(chunk.clicked).put(chunk.flagged);
+    this.buffer.limit(SLOT_BYTES);
+    long offset = slot * SLOT_BYTES;
+    while (this.buffer.hasRemaining()) {
+      offset += this.channel.write(this.buffer, offset);
+    }
+  }
+
+  // EFFECT: double the index's room, moving every entry into a new one, a batch at a time
+  void grow() throws IOException {
+    long capacity = this.capacity * 2;
+    Path path = this.indexPath.resolveSibling(this.indexPath.getFileName() + ".new");
+    FileChannel index = openIndex(path, capacity);
+    ByteBuffer batch = ByteBuffer.allocate(GROW_BATCH * ENTRY_BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    for (long start = 0; start < this.capacity; start += GROW_BATCH) {
+      batch.clear();
+      batch.limit((int) Math.min(GROW_BATCH, this.capacity - start) * ENTRY_BYTES);
+      while (batch.hasRemaining()) {
+        this.index.read(batch, start * ENTRY_BYTES + batch.position());
+      }
+      for (int e = 0; e < batch.limit(); e += ENTRY_BYTES) {
+        long slot = batch.getLong(e + 8);
+        if (slot != 0) {
+          long key = batch.getLong(e);
+          this.putEntry(index, this.find(index, capacity, key), key, slot);
+        }
+      }
+    }
+    this.index.close();
+    Files.move(path, this.indexPath, StandardCopyOption.REPLACE_EXISTING);
+    this.index = index;
+    this.capacity = capacity;
+  }
+
+  // EFFECT: fill the given chunk from the slot for the given key, if it has been stored
+  void read(long key, Chunk chunk) throws IOException {
+    this.find(this.index, this.capacity, key);
+    if (this.entrySlot == 0) {
+      return;
+    }
+    this.buffer.clear();
+    long offset = (this.entrySlot - 1) * SLOT_BYTES;
+    while (this.buffer.hasRemaining()) {
+      offset += this.channel.read(this.buffer, offset);
+    }
+    this.buffer.flip();
+    LongBuffer longs = this.buffer.asLongBuffer();
+    longs.get(chunk.clicked).get(chunk.flagged);
+  }
+
+  // EFFECT: close the files, and delete the index
+  void close() throws IOException {
+    this.channel.close();
+    this.index.close();
+    Files.deleteIfExists(this.indexPath);
+  }
+}
+
+// to represent a growable ring buffer of longs, used as a first-in first-out queue
+class LongQueue {
+  long[] items;
+  int head; // index of the first item
+  int size;
+
+  LongQueue() {
+    this.items = new long[64];
+    this.head = 0;
+    this.size = 0;
+  }
+
+  // EFFECT: add the given item to the end of this queue, growing it if it's full
+  void add(long item) {
+    if (this.size == this.items.length) {
+      long[] grown = new long[this.items.length * 2];
+      for (int i = 0; i < this.size; i++) {
+        grown[i] = this.items[(this.head + i) & (this.items.length - 1)];
+      }
+      this.items = grown;
+      this.head = 0;
+    }
+    this.items[(this.head + this.size) & (this.items.length - 1)] = item;
+    this.size += 1;
+  }
+
+  // EFFECT: remove and return the first item of this (non-empty) queue
+  long remove() {
+    long item = this.items[this.head];
+    this.head = (this.head + 1) & (this.items.length - 1);
+    this.size -= 1;
+    return item;
+  }
+
+  // EFFECT: empty this queue
+  void clear() {
+    this.head = 0;
+    this.size = 0;
+  }
+}
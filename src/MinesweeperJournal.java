@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                      JOURNAL                                      *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent an append-only record of every move that changes a game, from its start:
+// a header with the game's size, mines, options and seed, then one record per move -- the
+// cell's index (or which of the restart, undo and redo it is) and the kind of move packed
+// into a varint (1 to 5 bytes), little-endian
+// records are collected in a buffer and written in batches: every FLUSH_RECORDS records,
+// whenever the game ends, and when the journal is closed (so a game cut off in the middle
+// loses FLUSH_RECORDS - 1 moves at most)
+// (a game's seed and its moves are all it takes to play it out again, see Replay)
+class Journal implements AutoCloseable {
+  static final int MAGIC = 0x4D53574A; // "MSWJ"
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 32;
+  static final int MAX_RECORD_BYTES = 5; // a 31-bit index and 2 bits of kind, 7 bits a byte
+  static final int FLUSH_RECORDS = 64; // records written in each batch (at most)
+  static final int BUFFER_BYTES = HEADER_BYTES + FLUSH_RECORDS * MAX_RECORD_BYTES;
+
+  // kinds of move
+  static final int REVEAL = 0;
+  static final int FLAG = 1;
+  static final int CHORD = 2;
+  static final int OTHER = 3; // a move of the whole game, whose "index" says which one
+
+  // moves of the whole game
+  static final int RESTART = 0;
+  static final int UNDO = 1;
+  static final int REDO = 2;
+
+  // option bits of the header
+  static final int SAFE_OPENING = 1;
+  static final int NO_GUESS = 2;
+
+  FileChannel channel;
+  ByteBuffer buffer; // records not yet written to the file
+  int numRecorded;
+  int numUnwritten; // how many of those are still in the buffer
+
+  // start a journal of the given new game in the file at the given path (replacing anything
+  // already there), which the game then records each of its moves in
+  // EFFECT: set the given game's journal to this one
+  Journal(Game game, Path path) throws IOException {
+    if (game.minesPlaced || game.moves > 0) {
+      throw new IllegalArgumentException("A journal must start with a new game.");
+    }
+    if (game.seed == 0) {
+      throw new IllegalArgumentException("A journal needs a game with a known seed.");
+    }
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    this.buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    this.buffer.putInt(MAGIC).putInt(VERSION).putInt(game.rows).putInt(game.cols)
+        .putInt(game.mines)
+        .putInt((game.safeOpening ? SAFE_OPENING : 0) | (game.noGuess ? NO_GUESS : 0))
+        .putLong(game.seed);
+    this.numRecorded = 0;
+    this.numUnwritten = 0;
+    game.journal = this;
+  }
+
+  // EFFECT: add a move of the given kind on the cell at the given index to this journal
+  void record(int kind, int index) {
+    long code = (long) index << 2 | kind;
+    while (code >= 0x80) {
+      this.buffer.put((byte) (code | 0x80)); // the low 7 bits, and "more to come"
+      code >>>= 7;
+    }
+    this.buffer.put((byte) code);
+    this.numRecorded += 1;
+    this.numUnwritten += 1;
+    if (this.numUnwritten == FLUSH_RECORDS) {
+      this.flush();
+    }
+  }
+
+  // EFFECT: write every record collected so far to the file
+  void flush() {
+    try {
+      this.buffer.flip();
+      while (this.buffer.hasRemaining()) {
+        this.channel.write(this.buffer);
+      }
+      this.buffer.clear();
+      this.numUnwritten = 0;
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // EFFECT: write every record collected so far, and close the file (if it isn't already)
+  public void close() throws IOException {
+    if (this.channel.isOpen()) {
+      this.flush();
+      this.channel.close();
+    }
+  }
+}
+
+// to represent a journal read back to be replayed: the game after any number of its moves
+// can be rebuilt by playing them out from the game's seed
+// a snapshot of the game is kept every SNAPSHOT_INTERVAL moves (as replays first reach
+// them), so rebuilding the game after move n plays out at most SNAPSHOT_INTERVAL - 1 moves
+// once the moves before it have been replayed
+class Replay {
+  static final int SNAPSHOT_INTERVAL = 1000;
+
+  int rows;
+  int cols;
+  int mines;
+  int options; // the header's option bits
+  long seed;
+  long[] moves; // each move's record: its cell's index << 2 | its kind
+  int numMoves;
+  ArrayList<Game> snapshots; // the game after 0, SNAPSHOT_INTERVAL, 2 * SNAPSHOT_INTERVAL ...
+
+  // read the journal in the file at the given path
+  Replay(Path path) throws IOException {
+    ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+    if (data.remaining() < Journal.HEADER_BYTES || data.getInt() != Journal.MAGIC) {
+      throw new IOException("Not a Minesweeper journal.");
+    }
+    if (data.getInt() != Journal.VERSION) {
+      throw new IOException("Unsupported journal version.");
+    }
+    this.rows = data.getInt();
+    this.cols = data.getInt();
+    this.mines = data.getInt();
+    this.options = data.getInt();
+    this.seed = data.getLong();
+
+    this.moves = new long[Math.max(data.remaining() / 2, 16)]; // most records are 2 bytes
+    this.numMoves = 0;
+    try {
+      while (data.hasRemaining()) {
+        if (this.numMoves == this.moves.length) {
+          this.moves = Arrays.copyOf(this.moves, this.numMoves * 2);
+        }
+        this.moves[this.numMoves] = readVarint(data);
+        this.numMoves += 1;
+      }
+    }
+    catch (BufferUnderflowException e) {
+      throw new IOException("Corrupt journal: the last move is cut off.");
+    }
+
+    this.snapshots = new ArrayList<Game>();
+    this.snapshots.add(this.start());
+  }
+
+  // read a varint from the given buffer
+  static long readVarint(ByteBuffer data) {
+    long code = 0;
+    int shift = 0;
+    byte next = data.get();
+    while (next < 0) { // "more to come"
+      code |= (long) (next & 0x7F) << shift;
+      shift += 7;
+      next = data.get();
+    }
+    return code | (long) next << shift;
+  }
+
+  // how many moves are in this journal?
+  int size() {
+    return this.numMoves;
+  }
+
+  // the game this journal starts with, before any moves
+  Game start() {
+    Game game = new Game(this.rows, this.cols, this.mines, this.seed);
+    game.safeOpening = (this.options & Journal.SAFE_OPENING) != 0;
+    game.noGuess = (this.options & Journal.NO_GUESS) != 0;
+    new History(game); // in case the journal undoes any moves
+    return game;
+  }
+
+  // the game after the given number of this journal's moves (a copy of its own, to be played
+  // on freely)
+  // EFFECT: keep a snapshot at every multiple of SNAPSHOT_INTERVAL replayed for the first time
+  Game gameAt(int n) {
+    if (n < 0 || n > this.numMoves) {
+      throw new IllegalArgumentException("No move " + n + " in this journal.");
+    }
+    int from = Math.min(n / SNAPSHOT_INTERVAL, this.snapshots.size() - 1);
+    Game game = this.snapshots.get(from).copy();
+    for (int i = from * SNAPSHOT_INTERVAL; i < n; i++) {
+      apply(game, this.moves[i]);
+      if ((i + 1) % SNAPSHOT_INTERVAL == 0
+          && (i + 1) / SNAPSHOT_INTERVAL == this.snapshots.size()) {
+        this.snapshots.add(game.copy());
+      }
+    }
+    return game;
+  }
+
+  // EFFECT: play the move with the given record on the given game
+  static void apply(Game game, long move) {
+    int index = (int) (move >>> 2);
+    int kind = (int) (move & 3);
+    if (kind == Journal.REVEAL) {
+      game.reveal(index);
+    }
+    else if (kind == Journal.FLAG) {
+      game.flag(index);
+    }
+    else if (kind == Journal.CHORD) {
+      game.chord(index);
+    }
+    else if (index == Journal.RESTART) {
+      game.restart();
+    }
+    else if (index == Journal.UNDO) {
+      game.undo();
+    }
+    else {
+      game.redo();
+    }
+  }
+}
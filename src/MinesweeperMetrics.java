@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                      METRICS                                      *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent the timings of the game's hot paths: a latency histogram for each, filled in
+// as it runs, and a JFR event for each call (when a recording asks for them)
+// instrumentation is off unless the JVM is started with -Dminesweeper.metrics=true; ENABLED
+// is a static final constant, so when it's off the JIT drops every start and stop call (and
+// the timed code runs just as it would without them)
+// while it's on, a snapshot of every histogram is written every minesweeper.metrics.period
+// seconds (10 by default): as text to System.err, and as JSON to the file named by
+// minesweeper.metrics.json, if there is one
+//
+// a timed path looks like:
+//   long start = Metrics.start();
+//   ... the work ...
+//   Metrics.FLOOD_FILL.stop(start);
+class Metrics {
+  static final boolean ENABLED = Boolean.getBoolean("minesweeper.metrics");
+
+  static final Histogram MAKE_SCENE = new Histogram("makeScene");
+  static final Histogram DRAW_CELL = new Histogram("drawCell");
+  static final Histogram FLOOD_FILL = new Histogram("floodFill");
+  static final Histogram PLACE_MINES = new Histogram("placeMines");
+  static final Histogram MOUSE_CLICK = new Histogram("onMouseClicked");
+  static final Histogram RESTART = new Histogram("restart");
+  static final Histogram[] ALL = new Histogram[] { MAKE_SCENE, DRAW_CELL, FLOOD_FILL,
+      PLACE_MINES, MOUSE_CLICK, RESTART };
+
+  static {
+    if (ENABLED) {
+      startReports(Long.getLong("minesweeper.metrics.period", 10),
+          System.getProperty("minesweeper.metrics.json"));
+    }
+  }
+
+  // the time a timed path starts at, in nanoseconds (0 when instrumentation is off)
+  static long start() {
+    return ENABLED ? System.nanoTime() : 0;
+  }
+
+  // EFFECT: write a snapshot of every histogram every given number of seconds, as text to
+  // System.err and (unless the given file name is null) as JSON to the named file, from a
+  // daemon thread
+  static void startReports(long seconds, String jsonFile) {
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "minesweeper-metrics");
+      thread.setDaemon(true); // doesn't keep the game running once it's closed
+      return thread;
+    });
+    reporter.scheduleAtFixedRate(() -> {
+      System.err.print(snapshotText());
+      if (jsonFile != null) {
+        try {
+          Files.writeString(Path.of(jsonFile), snapshotJson());
+        }
+        catch (IOException e) {
+          System.err.println("Couldn't write " + jsonFile + ": " + e.getMessage());
+        }
+      }
+    }, seconds, seconds, TimeUnit.SECONDS);
+  }
+
+  // a snapshot of every histogram, one line each, with times in microseconds
+  static String snapshotText() {
+    StringBuilder text = new StringBuilder();
+    for (Histogram histogram : ALL) {
+      text.append(histogram.toText()).append('\n');
+    }
+    return text.toString();
+  }
+
+  // a snapshot of every histogram as a JSON object, keyed by name, with times in nanoseconds
+  static String snapshotJson() {
+    StringBuilder json = new StringBuilder("{");
+    for (int i = 0; i < ALL.length; i++) {
+      json.append(i == 0 ? "" : ",").append(ALL[i].toJson());
+    }
+    return json.append("}").toString();
+  }
+
+  // EFFECT: clear every histogram
+  static void reset() {
+    for (Histogram histogram : ALL) {
+      histogram.reset();
+    }
+  }
+}
+
+// to represent a count of the calls of one timed path, and a histogram of how long they
+// took in the style of HdrHistogram: values under 2^SUB_BITS nanoseconds are counted
+// exactly, and larger ones in 2^SUB_BITS buckets per power of 2, so each bucket is within
+// about 3% of the values in it (in a fixed array, so recording a value allocates nothing)
+// counts are atomic, so any thread can record (a game's own paths run on one thread at a
+// time, so they're rarely contended)
+class Histogram {
+  static final int SUB_BITS = 5;
+  static final int SUB_BUCKETS = 1 << SUB_BITS;
+  static final int NUM_BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+  String name;
+  AtomicLongArray counts; // how many values fell into each bucket
+  AtomicLong count; // how many values were recorded
+  AtomicLong total; // the sum of every value recorded
+  AtomicLong max; // the largest value recorded
+
+  Histogram(String name) {
+    this.name = name;
+    this.counts = new AtomicLongArray(NUM_BUCKETS);
+    this.count = new AtomicLong();
+    this.total = new AtomicLong();
+    this.max = new AtomicLong();
+  }
+
+  // EFFECT: record the time since the given start (from Metrics.start()), and commit a JFR
+  // event for it if a recording wants one; does nothing when instrumentation is off
+  void stop(long start) {
+    if (Metrics.ENABLED) {
+      long nanos = System.nanoTime() - start;
+      this.record(nanos);
+      TimingEvent event = new TimingEvent();
+      if (event.shouldCommit()) {
+        event.operation = this.name;
+        event.nanos = nanos;
+        event.commit();
+      }
+    }
+  }
+
+  // EFFECT: add the given value (in nanoseconds) to this histogram
+  void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    this.counts.incrementAndGet(bucket(value));
+    this.count.incrementAndGet();
+    this.total.addAndGet(value);
+    this.max.accumulateAndGet(value, Math::max);
+  }
+
+  // the bucket the given value is counted in
+  static int bucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value); // at least SUB_BITS
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  // the largest value counted in the given bucket
+  static long highestIn(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  // the value at the given percentile (0 to 100) of every value recorded, to within its
+  // bucket (and never above the largest value); 0 if none were recorded
+  long percentile(double percentile) {
+    long count = this.count.get();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+    long seen = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      seen += this.counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestIn(i), this.max.get());
+      }
+    }
+    return this.max.get(); // values recorded while counting
+  }
+
+  // the mean of every value recorded (0 if none were)
+  double mean() {
+    long count = this.count.get();
+    return count == 0 ? 0 : (double) this.total.get() / count;
+  }
+
+  // EFFECT: forget every value recorded
+  void reset() {
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      this.counts.set(i, 0);
+    }
+    this.count.set(0);
+    this.total.set(0);
+    this.max.set(0);
+  }
+
+  // a line of text about this histogram, with times in microseconds
+  String toText() {
+    return String.format("%-15s count=%-10d mean=%.3fus p50=%.3fus p90=%.3fus p99=%.3fus "
+        + "p99.9=%.3fus max=%.3fus", this.name, this.count.get(), this.mean() / 1000,
+        this.percentile(50) / 1000.0, this.percentile(90) / 1000.0,
+        this.percentile(99) / 1000.0, this.percentile(99.9) / 1000.0, this.max.get() / 1000.0);
+  }
+
+  // a JSON member for this histogram, with times in nanoseconds
+  String toJson() {
+    return String.format("\"%s\":{\"count\":%d,\"meanNs\":%.1f,\"p50Ns\":%d,\"p90Ns\":%d,"
+        + "\"p99Ns\":%d,\"p999Ns\":%d,\"maxNs\":%d}", this.name, this.count.get(), this.mean(),
+        this.percentile(50), this.percentile(90), this.percentile(99), this.percentile(99.9),
+        this.max.get());
+  }
+}
+
+// to represent one call of a timed path, as a JFR event (recorded only while a JFR recording
+// has minesweeper.Timing enabled, e.g. with -XX:StartFlightRecording)
+@Name("minesweeper.Timing")
+@Label("Minesweeper Timing")
+@Category("Minesweeper")
+class TimingEvent extends Event {
+  @Label("Operation")
+  String operation;
+
+  @Label("Duration")
+  @Timespan(Timespan.NANOSECONDS)
+  long nanos;
+}
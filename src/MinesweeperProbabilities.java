@@ -0,0 +1,497 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                    PROBABILITIES                                  *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent an engine that works out the exact chance that each hidden cell of a game is
+// a mine, from everything visible on its board and the number of mines left to find
+// the frontier (the unknown cells next to a visible number) is split into components that
+// share no numbers; each component's solutions are counted by how many mines they use, and
+// each way of adding those up is weighed by the ways to place the rest of the mines among
+// the cells that no number touches
+// (a component's counts depend only on its numbers, so they're cached by them: a component
+// that a move didn't touch costs only a lookup)
+class MineProbabilities {
+  static final int CACHE_SIZE = 256; // most components' counts kept
+  static final int MAX_VARS = 512; // larger components are treated as if no number touched them
+  static final int MAX_OPEN = 15; // most numbers open at once while counting (4 bits apiece)
+
+  Solver solver; // finds the numbers on the board, and splits them into components
+  LinkedHashMap<ComponentKey, ComponentCounts> cache; // least recently used first
+  int hits; // how many components were found in the cache
+  int misses; // how many had to be counted
+
+  double[] probabilities; // each cell's chance of being a mine, as of the last compute
+  double unconstrained; // the chance for a cell no number touches, as of the last compute
+
+  MineProbabilities() {
+    this.solver = new Solver();
+    this.cache = new LinkedHashMap<ComponentKey, ComponentCounts>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(Map.Entry<ComponentKey, ComponentCounts> eldest) {
+        return this.size() > CACHE_SIZE;
+      }
+    };
+  }
+
+  // work out the chance that each cell of the given game is a mine: 0 for clicked cells, 1
+  // for flagged ones (flags are trusted to be right), and exact odds for the rest
+  // EFFECT: set probabilities to the result, and return it
+  double[] compute(Game game) {
+    Grid g = game.grid;
+    if (this.probabilities == null || this.probabilities.length != g.size()) {
+      this.probabilities = new double[g.size()];
+    }
+
+    // count each component's solutions
+    Solver s = this.solver;
+    s.prepare(game);
+    s.findConstraints();
+    s.startComponents();
+    ArrayList<ComponentCounts> components = new ArrayList<ComponentCounts>();
+    ArrayList<int[]> componentCells = new ArrayList<int[]>();
+    int frontier = 0;
+    for (int i = 0; i < s.numConstraints; i++) {
+      if (!s.constraintSeen[i]) {
+        int numQueued = s.findComponent(i);
+        ComponentCounts counts = this.countsOf(numQueued);
+        if (counts != null) {
+          components.add(counts);
+          componentCells.add(Arrays.copyOf(s.vars, s.numVars));
+          frontier += s.numVars;
+        }
+      }
+    }
+
+    // (no cell is both flagged and clicked until a lost game shows its mines)
+    int flagged = g.numFlagged;
+    int unknown = g.size() - g.numClicked - g.numFlagged;
+    int minesLeft = game.mines - flagged;
+    int others = unknown - frontier; // the cells no (counted) number touches
+
+    // the ways the components before each one can add up their mines
+    int n = components.size();
+    double[][] prefix = new double[n + 1][];
+    prefix[0] = new double[] { 1 };
+    for (int j = 0; j < n; j++) {
+      prefix[j + 1] = convolve(prefix[j], components.get(j).scaled());
+    }
+
+    double[] total = prefix[n];
+    double[] weights = weights(total.length, others, minesLeft);
+    double norm = 0;
+    double expectedOthers = 0; // (unnormalized) mines expected among the other cells
+    for (int k = 0; k < total.length; k++) {
+      norm += total[k] * weights[k];
+      expectedOthers += total[k] * weights[k] * (minesLeft - k);
+    }
+    if (norm == 0) {
+      // no way to fit the mines left (the flags must be wrong): weigh every total the same
+      Arrays.fill(weights, 1);
+      this.unconstrained = unknown == 0 ? 0
+          : Math.max(0, Math.min(1, (double) minesLeft / unknown));
+    }
+    else {
+      this.unconstrained = others == 0 ? 0 : expectedOthers / norm / others;
+    }
+
+    for (int i = 0; i < g.size(); i++) {
+      this.probabilities[i] = g.isFlagged(i) ? 1 : g.isClicked(i) ? 0 : this.unconstrained;
+    }
+
+    // from the last component back: after[t] is the weight of the components before this
+    // one holding t mines, summed over the ways the ones after it can add up theirs
+    double[] after = weights;
+    for (int j = n - 1; j >= 0; j--) {
+      ComponentCounts counts = components.get(j);
+      this.spread(counts, componentCells.get(j), prefix[j], after);
+      after = counts.pullBack(after);
+    }
+    return this.probabilities;
+  }
+
+  // EFFECT: set the probability of each of the given cells of the given component, given the
+  // ways the components before it can add up their mines, and the weight of each of those
+  // totals with this component's mines added (summed over the components after it)
+  void spread(ComponentCounts counts, int[] cells, double[] before, double[] after) {
+    // the weight of this component holding lo + i mines
+    double[] weightOf = new double[counts.solutions.length];
+    double norm = 0;
+    for (int i = 0; i < weightOf.length; i++) {
+      for (int b = 0; b < before.length && counts.lo + i + b < after.length; b++) {
+        weightOf[i] += before[b] * after[counts.lo + i + b];
+      }
+      norm += counts.solutions[i] * weightOf[i];
+    }
+
+    for (int v = 0; v < cells.length; v++) {
+      double mines = 0;
+      for (int i = 0; i < weightOf.length; i++) {
+        mines += counts.mines[v][i] * weightOf[i];
+      }
+      this.probabilities[cells[v]] = norm == 0 ? this.unconstrained : mines / norm;
+    }
+  }
+
+  // the counts of the component the solver found last, from the cache if it has been seen
+  // before; null if it's too big or tangled to count
+  ComponentCounts countsOf(int numQueued) {
+    Solver s = this.solver;
+    if (s.numVars > MAX_VARS) {
+      return null;
+    }
+
+    long[] entries = new long[numQueued + 1];
+    entries[0] = s.grid.cols; // the same numbers share different cells on other widths
+    for (int k = 0; k < numQueued; k++) {
+      int c = s.queue[k];
+      entries[k + 1] = ((long) s.cells[c] << 16) | (s.masks[c] << 4) | s.values[c];
+    }
+    ComponentKey key = new ComponentKey(entries);
+
+    ComponentCounts counts = this.cache.get(key);
+    if (counts != null) {
+      this.hits += 1;
+    }
+    else {
+      this.misses += 1;
+      counts = this.count(numQueued);
+      if (counts != null) {
+        this.cache.put(key, counts);
+      }
+    }
+    return counts;
+  }
+
+  // count the solutions of the component the solver found last, by how many mines they use,
+  // and how many of each of those have each of its cells as a mine; null if it has no
+  // solutions, or more than MAX_OPEN numbers open at once
+  // the cells are assigned in the order they were found, and solutions that agree on the
+  // mines so far around every number still open are counted together, so a long frontier
+  // costs about as much as its widest stretch, not 2 to the power of its length
+  ComponentCounts count(int numQueued) {
+    Solver s = this.solver;
+    int n = s.numVars;
+    CountingPlan plan = new CountingPlan(s, numQueued);
+    if (!plan.assignSlots()) {
+      return null;
+    }
+
+    // forward: the solutions of the cells before each one, by state and mines so far
+    long[][] states = new long[n + 1][];
+    double[][][] ways = new double[n + 1][][];
+    states[0] = new long[] { 0 };
+    ways[0] = new double[][] { { 1 } };
+    HashMap<Long, Integer> index = new HashMap<Long, Integer>();
+    for (int v = 0; v < n; v++) {
+      index.clear();
+      long[] nextStates = new long[Math.max(2, states[v].length * 2)];
+      double[][] nextWays = new double[nextStates.length][];
+      int numNext = 0;
+      for (int j = 0; j < states[v].length; j++) {
+        for (int isMine = 0; isMine <= 1; isMine++) {
+          long next = plan.step(states[v][j], v, isMine);
+          if (next >= 0) {
+            Integer at = index.get(next);
+            if (at == null) {
+              at = numNext;
+              index.put(next, at);
+              nextStates[numNext] = next;
+              nextWays[numNext] = new double[v + 2];
+              numNext += 1;
+            }
+            double[] from = ways[v][j];
+            double[] to = nextWays[at];
+            for (int k = 0; k < from.length; k++) {
+              to[k + isMine] += from[k];
+            }
+          }
+        }
+      }
+      if (numNext == 0) {
+        return null; // the numbers contradict each other
+      }
+      states[v + 1] = Arrays.copyOf(nextStates, numNext);
+      ways[v + 1] = Arrays.copyOf(nextWays, numNext);
+    }
+
+    // backward: the solutions of the cells from each one on, by state and mines from there;
+    // each cell is a mine in the solutions that pair a way of reaching it with a way on
+    // from it as a mine
+    double[] solutions = ways[n][0];
+    double[][] mines = new double[n][n + 1];
+    HashMap<Long, double[]> after = new HashMap<Long, double[]>();
+    after.put(0L, new double[] { 1 });
+    for (int v = n - 1; v >= 0; v--) {
+      HashMap<Long, double[]> before = new HashMap<Long, double[]>();
+      for (int j = 0; j < states[v].length; j++) {
+        double[] on = null;
+        for (int isMine = 0; isMine <= 1; isMine++) {
+          long next = plan.step(states[v][j], v, isMine);
+          double[] tail = next < 0 ? null : after.get(next);
+          if (tail != null) {
+            on = on == null ? new double[n - v + 1] : on;
+            for (int k = 0; k < tail.length; k++) {
+              on[k + isMine] += tail[k];
+            }
+            if (isMine == 1) {
+              double[] head = ways[v][j];
+              for (int a = 0; a < head.length; a++) {
+                for (int b = 0; b < tail.length; b++) {
+                  mines[v][a + b + 1] += head[a] * tail[b];
+                }
+              }
+            }
+          }
+        }
+        if (on != null) {
+          before.put(states[v][j], on);
+        }
+      }
+      after = before;
+    }
+    return new ComponentCounts(solutions, mines);
+  }
+
+  // the product of the given polynomials (by how many mines), scaled so its largest
+  // coefficient is 1 (only the ratios between them matter)
+  static double[] convolve(double[] a, double[] b) {
+    double[] product = new double[a.length + b.length - 1];
+    double max = 0;
+    for (int i = 0; i < a.length; i++) {
+      for (int j = 0; j < b.length; j++) {
+        product[i + j] += a[i] * b[j];
+      }
+    }
+    for (double p : product) {
+      max = Math.max(max, p);
+    }
+    for (int i = 0; max > 0 && i < product.length; i++) {
+      product[i] /= max;
+    }
+    return product;
+  }
+
+  // the weight of the frontier holding each number of mines below the given length: the
+  // ways to place the rest of the given mines left among the given other cells (scaled so
+  // the largest is 1)
+  static double[] weights(int length, int others, int minesLeft) {
+    double[] logs = new double[length];
+    Arrays.fill(logs, Double.NEGATIVE_INFINITY);
+    double max = Double.NEGATIVE_INFINITY;
+    double log = 0; // log C(others, r), less log C(others, the first r)
+    for (int r = Math.max(0, minesLeft - length + 1); r <= Math.min(minesLeft, others); r++) {
+      logs[minesLeft - r] = log;
+      max = Math.max(max, log);
+      log += Math.log(others - r) - Math.log(r + 1);
+    }
+
+    double[] weights = new double[length];
+    for (int k = 0; k < length; k++) {
+      weights[k] = logs[k] == Double.NEGATIVE_INFINITY ? 0 : Math.exp(logs[k] - max);
+    }
+    return weights;
+  }
+
+  // the hidden, unflagged cell of the given game least likely to be a mine (ties broken
+  // with the given random source), or -1 if there is none
+  // EFFECT: compute this engine's probabilities for the game
+  int safest(Game game, Random rand) {
+    this.compute(game);
+    int best = -1;
+    int ties = 0;
+    for (int i = 0; i < this.probabilities.length; i++) {
+      if (!game.grid.isClicked(i) && !game.grid.isFlagged(i)) {
+        double p = this.probabilities[i];
+        if (best < 0 || p < this.probabilities[best] - 1e-12) {
+          best = i;
+          ties = 1;
+        }
+        else if (p <= this.probabilities[best] + 1e-12) {
+          ties += 1;
+          best = rand.nextInt(ties) == 0 ? i : best;
+        }
+      }
+    }
+    return best;
+  }
+}
+
+// to represent the numbers of a component, as a cache key: the board's width, then each
+// number's cell, unknown neighbors and mines left, in the order they were found
+class ComponentKey {
+  long[] entries;
+  int hash;
+
+  ComponentKey(long[] entries) {
+    this.entries = entries;
+    this.hash = Arrays.hashCode(entries);
+  }
+
+  public boolean equals(Object other) {
+    return other instanceof ComponentKey
+        && Arrays.equals(this.entries, ((ComponentKey) other).entries);
+  }
+
+  public int hashCode() {
+    return this.hash;
+  }
+}
+
+// to represent a component's solutions, by how many mines they use (from lo up)
+class ComponentCounts {
+  int lo; // the fewest mines any solution uses
+  double[] solutions; // how many solutions use lo + i mines
+  double[][] mines; // in how many of those each cell (in the order found) is a mine
+
+  // trim the given counts (from 0 mines up) to the numbers of mines solutions use
+  ComponentCounts(double[] solutions, double[][] mines) {
+    int lo = 0;
+    int hi = solutions.length - 1;
+    while (lo < hi && solutions[lo] == 0) {
+      lo += 1;
+    }
+    while (hi > lo && solutions[hi] == 0) {
+      hi -= 1;
+    }
+    this.lo = lo;
+    this.solutions = Arrays.copyOfRange(solutions, lo, hi + 1);
+    this.mines = new double[mines.length][];
+    for (int v = 0; v < mines.length; v++) {
+      this.mines[v] = Arrays.copyOfRange(mines[v], lo, hi + 1);
+    }
+  }
+
+  // how many solutions use each number of mines, from 0 up (scaled so the most is 1)
+  double[] scaled() {
+    double[] scaled = new double[this.lo + this.solutions.length];
+    double max = 0;
+    for (double count : this.solutions) {
+      max = Math.max(max, count);
+    }
+    for (int i = 0; i < this.solutions.length; i++) {
+      scaled[this.lo + i] = this.solutions[i] / max;
+    }
+    return scaled;
+  }
+
+  // the given weights of each number of mines (from 0 up), with this component's solutions
+  // added in: the weight of t mines before it is the sum of the weights of t plus each
+  // number of mines it could hold, times its solutions (scaled so the largest is 1)
+  double[] pullBack(double[] weights) {
+    double[] pulled = new double[weights.length];
+    double[] scaled = this.scaled();
+    double max = 0;
+    for (int t = 0; t < pulled.length; t++) {
+      for (int c = this.lo; c < scaled.length && t + c < weights.length; c++) {
+        pulled[t] += scaled[c] * weights[t + c];
+      }
+      max = Math.max(max, pulled[t]);
+    }
+    for (int t = 0; max > 0 && t < pulled.length; t++) {
+      pulled[t] /= max;
+    }
+    return pulled;
+  }
+}
+
+// to represent how a component's solutions are counted: the cells are assigned one at a
+// time, and a state holds, in a 4-bit slot for each number still open (with cells both
+// assigned and not), how many mines have been assigned around it
+// (at most 15 slots, so a state is never negative)
+class CountingPlan {
+  int numVars;
+  int[] values; // each of the component's numbers' mines left (in the order found)
+  int[] last; // the last of each number's cells to be assigned
+  int[] slots; // each number's slot in a state
+  int[] varConstraints; // the numbers around each cell, 8 slots apiece
+  int[] numVarConstraints;
+  int[] left; // for each cell's numbers, how many of their cells come after it
+
+  CountingPlan(Solver s, int numQueued) {
+    this.numVars = s.numVars;
+    this.values = new int[numQueued];
+    this.last = new int[numQueued];
+    this.slots = new int[numQueued];
+    this.varConstraints = new int[s.numVars * 8];
+    this.numVarConstraints = new int[s.numVars];
+    this.left = new int[s.numVars * 8];
+
+    int[] size = new int[numQueued];
+    for (int k = 0; k < numQueued; k++) {
+      int c = s.queue[k];
+      this.values[k] = s.values[c];
+      for (int bits = s.masks[c]; bits != 0; bits &= bits - 1) {
+        int bit = Integer.numberOfTrailingZeros(bits);
+        int v = s.varAt[s.cells[c] + (bit / 3 - 1) * s.grid.cols + bit % 3 - 1];
+        this.varConstraints[v * 8 + this.numVarConstraints[v]] = k;
+        this.numVarConstraints[v] += 1;
+        this.last[k] = Math.max(this.last[k], v);
+        size[k] += 1;
+      }
+    }
+
+    // cells are visited in order, so a number's cells after cell v are its cells less
+    // the ones seen up to v
+    int[] seen = new int[numQueued];
+    for (int v = 0; v < this.numVars; v++) {
+      for (int i = 0; i < this.numVarConstraints[v]; i++) {
+        int k = this.varConstraints[v * 8 + i];
+        seen[k] += 1;
+        this.left[v * 8 + i] = size[k] - seen[k];
+      }
+    }
+  }
+
+  // give each number a slot from its first cell to its last, reusing the slots of numbers
+  // already closed
+  // EFFECT: set slots; return false if more than MAX_OPEN numbers are ever open at once
+  boolean assignSlots() {
+    boolean[] open = new boolean[this.values.length];
+    int free = (1 << MineProbabilities.MAX_OPEN) - 1;
+    for (int v = 0; v < this.numVars; v++) {
+      for (int i = 0; i < this.numVarConstraints[v]; i++) {
+        int k = this.varConstraints[v * 8 + i];
+        if (!open[k]) {
+          if (free == 0) {
+            return false;
+          }
+          open[k] = true;
+          this.slots[k] = Integer.numberOfTrailingZeros(free);
+          free &= free - 1;
+        }
+      }
+      for (int i = 0; i < this.numVarConstraints[v]; i++) {
+        int k = this.varConstraints[v * 8 + i];
+        if (this.last[k] == v) {
+          free |= 1 << this.slots[k];
+        }
+      }
+    }
+    return true;
+  }
+
+  // the state after making cell v a mine (if given 1) or not, from the given state; -1 if
+  // that breaks one of its numbers (too many mines, or too few cells left to reach it)
+  long step(long state, int v, int isMine) {
+    long next = state;
+    for (int i = 0; i < this.numVarConstraints[v]; i++) {
+      int k = this.varConstraints[v * 8 + i];
+      int shift = 4 * this.slots[k];
+      int mines = (int) ((state >>> shift) & 15) + isMine;
+      if (mines > this.values[k] || mines + this.left[v * 8 + i] < this.values[k]) {
+        return -1;
+      }
+      next &= ~(15L << shift);
+      if (this.last[k] != v) {
+        next |= (long) mines << shift;
+      }
+    }
+    return next;
+  }
+}
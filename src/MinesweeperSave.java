@@ -0,0 +1,228 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                     SAVE FILES                                    *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent the save file format: a fixed header, then three bitsets of one bit per cell
+// (which cells are mines, which are clicked, and which are flagged), all little-endian, then
+// the game's random source
+//
+//   offset  0: magic, version, rows, cols, mines, visibleCells, moves, status bits (ints)
+//   offset 32: seed (a long), the random source's length (an int), then zeros up to
+//              HEADER_BYTES
+//   offset 64: mine bits, then clicked bits, then flagged bits ((size + 63) / 64 longs each)
+//   then:      the random source, serialized (as Game.copyOf does), so a loaded game draws
+//              the same numbers the saved one would have -- a restart places the same mines
+//              (a game without one, or with a subclass of Random, saves none, and a loaded
+//              one is given a new Random, from its seed if it has one)
+//
+// files are written and read through memory-mapped buffers, a whole bitset at a time, and
+// a loaded grid's counts of mine neighbors are recounted from its mine bits, so no Cell is
+// made either way (a grid's bitsets are at most 256MB each, so each fits in one mapping)
+class GameFile {
+  static final int MAGIC = 0x4D535750; // "MSWP"
+  static final int VERSION = 2;
+  static final int HEADER_BYTES = 64;
+  static final int MAX_RANDOM_BYTES = 1024; // a serialized Random is about 100 bytes
+
+  // status bits of the header
+  static final int GAME_OVER = 1;
+  static final int WIN = 2;
+  static final int MINES_PLACED = 4;
+  static final int SAFE_OPENING = 8;
+  static final int NO_GUESS = 16;
+
+  // write the given game to the file at the given path, replacing anything already there
+  static void save(Game game, Path path) throws IOException {
+    Grid grid = game.grid;
+    int words = grid.mineBits.length;
+    long[] clicked = new long[words];
+    long[] flagged = new long[words];
+    packState(grid.state, clicked, flagged);
+    byte[] random = randomBytes(game.rand);
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer header = map(channel, FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+      header.putInt(MAGIC).putInt(VERSION).putInt(game.rows).putInt(game.cols)
+          .putInt(game.mines).putInt(game.visibleCells).putInt(game.moves)
+          .putInt(statusBits(game)).putLong(game.seed).putInt(random.length);
+
+      writeWords(channel, sectionOffset(words, 0), grid.mineBits);
+      writeWords(channel, sectionOffset(words, 1), clicked);
+      writeWords(channel, sectionOffset(words, 2), flagged);
+      map(channel, FileChannel.MapMode.READ_WRITE, sectionOffset(words, 3), random.length)
+          .put(random);
+    }
+  }
+
+  // read the game saved in the file at the given path
+  static Game load(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES) {
+        throw new IOException("Not a Minesweeper save file.");
+      }
+      ByteBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      if (header.getInt() != MAGIC) {
+        throw new IOException("Not a Minesweeper save file.");
+      }
+      if (header.getInt() != VERSION) {
+        throw new IOException("Unsupported save file version.");
+      }
+      int rows = header.getInt();
+      int cols = header.getInt();
+      int mines = header.getInt();
+      int visibleCells = header.getInt();
+      int moves = header.getInt();
+      int status = header.getInt();
+      long seed = header.getLong();
+      int randomLength = header.getInt();
+
+      long size = (long) rows * cols;
+      if (rows < 2 || cols < 2 || size > Integer.MAX_VALUE || mines < 0 || mines > size) {
+        throw new IOException("Corrupt save file: bad board size.");
+      }
+      int words = (int) ((size + 63) / 64);
+      if (randomLength < 0 || randomLength > MAX_RANDOM_BYTES
+          || channel.size() != sectionOffset(words, 3) + randomLength) {
+        throw new IOException("Corrupt save file: wrong length.");
+      }
+
+      Grid grid = new Grid(rows, cols);
+      long[] clicked = new long[words];
+      long[] flagged = new long[words];
+      readWords(channel, sectionOffset(words, 0), grid.mineBits);
+      readWords(channel, sectionOffset(words, 1), clicked);
+      readWords(channel, sectionOffset(words, 2), flagged);
+      unpackState(clicked, flagged, grid.state);
+      byte[] random = new byte[randomLength];
+      map(channel, FileChannel.MapMode.READ_ONLY, sectionOffset(words, 3), randomLength)
+          .get(random);
+      grid.recountMineNeighbors();
+      grid.recountState();
+
+      Game game = new Game(grid);
+      game.mines = mines; // the grid has none yet if they're still to be placed
+      game.visibleCells = visibleCells;
+      game.moves = moves;
+      game.seed = seed;
+      if (randomLength > 0) {
+        game.rand = readRandom(random);
+      }
+      else {
+        game.rand = seed != 0 ? new Random(seed) : new Random();
+      }
+      game.gameOver = (status & GAME_OVER) != 0;
+      game.win = (status & WIN) != 0;
+      game.minesPlaced = (status & MINES_PLACED) != 0;
+      game.safeOpening = (status & SAFE_OPENING) != 0;
+      game.noGuess = (status & NO_GUESS) != 0;
+      return game;
+    }
+  }
+
+  // the header's status bits for the given game
+  static int statusBits(Game game) {
+    return (game.gameOver ? GAME_OVER : 0) | (game.win ? WIN : 0)
+        | (game.minesPlaced ? MINES_PLACED : 0) | (game.safeOpening ? SAFE_OPENING : 0)
+        | (game.noGuess ? NO_GUESS : 0);
+  }
+
+  // the given random source, serialized, or no bytes if there's none or it's a subclass of
+  // Random (which readRandom wouldn't read back)
+  static byte[] randomBytes(Random rand) throws IOException {
+    if (rand == null || rand.getClass() != Random.class) {
+      return new byte[0];
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(rand);
+    }
+    return bytes.toByteArray();
+  }
+
+  // the random source serialized in the given bytes
+  // (nothing but a Random is read, so a save file can't have any other class made)
+  static Random readRandom(byte[] bytes) throws IOException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      in.setObjectInputFilter(ObjectInputFilter.Config.createFilter("java.util.Random;!*"));
+      return (Random) in.readObject();
+    }
+    catch (ClassNotFoundException | ClassCastException | IOException e) {
+      throw new IOException("Corrupt save file: bad random source.", e);
+    }
+  }
+
+  // the offset of the bitset with the given number (0 => mines, 1 => clicked, 2 => flagged,
+  // 3 => the end of the file) in a file whose bitsets are the given number of longs each
+  static long sectionOffset(int words, int section) {
+    return HEADER_BYTES + 8L * words * section;
+  }
+
+  // map the given range of the given file, little-endian
+  static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long offset,
+      long length) throws IOException {
+    MappedByteBuffer buffer = channel.map(mode, offset, length);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    return buffer;
+  }
+
+  // EFFECT: write the given words to the given file, starting at the given offset
+  static void writeWords(FileChannel channel, long offset, long[] words) throws IOException {
+    LongBuffer buffer =
+        map(channel, FileChannel.MapMode.READ_WRITE, offset, 8L * words.length).asLongBuffer();
+    buffer.put(words);
+  }
+
+  // EFFECT: fill the given words from the given file, starting at the given offset
+  static void readWords(FileChannel channel, long offset, long[] words) throws IOException {
+    LongBuffer buffer =
+        map(channel, FileChannel.MapMode.READ_ONLY, offset, 8L * words.length).asLongBuffer();
+    buffer.get(words);
+  }
+
+  // EFFECT: set bit i of the given clicked and flagged bitsets to whether cell i of the given
+  // state is clicked and flagged
+  static void packState(byte[] state, long[] clicked, long[] flagged) {
+    for (int w = 0; w < clicked.length; w++) {
+      int base = w << 6;
+      long clickedWord = 0;
+      long flaggedWord = 0;
+      for (int i = Math.min(base + 64, state.length) - 1; i >= base; i--) {
+        clickedWord = clickedWord << 1 | (state[i] & Grid.CLICKED);
+        flaggedWord = flaggedWord << 1 | (state[i] & Grid.FLAGGED) >>> 1;
+      }
+      clicked[w] = clickedWord;
+      flagged[w] = flaggedWord;
+    }
+  }
+
+  // EFFECT: set each cell of the given state to be clicked and flagged as its bit of the
+  // given clicked and flagged bitsets says
+  static void unpackState(long[] clicked, long[] flagged, byte[] state) {
+    for (int w = 0; w < clicked.length; w++) {
+      long clickedWord = clicked[w];
+      long flaggedWord = flagged[w];
+      for (int i = w << 6; i < Math.min((w << 6) + 64, state.length); i++) {
+        state[i] = (byte) ((clickedWord & 1) | (flaggedWord & 1) << 1);
+        clickedWord >>>= 1;
+        flaggedWord >>>= 1;
+      }
+    }
+  }
+}
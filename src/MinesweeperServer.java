@@ -0,0 +1,689 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                       SERVER                                      *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent a server hosting one game per connection, over TCP or a Unix domain socket,
+// all from one thread: a selector hands it whichever connections have something to read or
+// room to write, so tens of thousands of idle ones cost no threads
+// the protocol is a line of ASCII per request, and one line back per request:
+//
+//   NEW rows cols mines [seed]  start a new game        => OK status visible 0
+//   R index                     reveal the cell         => OK status visible n changes...
+//   F index                     flag or unflag the cell => (the same)
+//   C index                     chord the cell          => (the same)
+//   S                           show the whole board    => BOARD status rows cols cells
+//   Q                           quit                    => BYE (and the server hangs up)
+//   (anything wrong)                                    => ERR message
+//
+// cells are numbered row by row (index = row * cols + col), as on a Grid; status is
+// Game.PLAYING, WON or LOST; each change is index=symbol for a cell the move changed, where a
+// symbol is - (hidden), F (flagged), * (a revealed mine) or the cell's count of mine
+// neighbors; n is -1 when too many cells changed to list, and then S shows them all
+// an idle connection keeps just its game's packed grid (and no buffers, unless a reply
+// couldn't be written in full, or a request came in pieces)
+class GameServer implements AutoCloseable {
+  static final int MAX_LINE = 64; // the longest request, in bytes
+  static final int MAX_CELLS = 1 << 16; // the most cells a game can have
+  static final int READ_BYTES = 1 << 16; // read from one connection at a time
+
+  ServerSocketChannel server;
+  SocketAddress address; // the address the server is listening on
+  Selector selector;
+  ByteBuffer readBuffer; // shared by every connection
+  StringBuilder reply; // shared by every connection
+  Random seeds; // seeds games that weren't given one
+  int maxSessions;
+  int numSessions;
+  volatile boolean serving; // is serve running?
+  volatile boolean closed; // has close been called?
+
+  // start a server listening on the given address (an InetSocketAddress, or a
+  // UnixDomainSocketAddress), with room for the given number of connections at once
+  GameServer(SocketAddress address, int maxSessions) throws IOException {
+    if (address instanceof UnixDomainSocketAddress) {
+      this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    }
+    else {
+      this.server = ServerSocketChannel.open();
+    }
+    this.server.bind(address, 1024);
+    this.server.configureBlocking(false);
+    this.address = this.server.getLocalAddress();
+    this.selector = Selector.open();
+    this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+    this.readBuffer = ByteBuffer.allocateDirect(READ_BYTES);
+    this.reply = new StringBuilder();
+    this.seeds = new Random();
+    this.maxSessions = maxSessions;
+    this.numSessions = 0;
+  }
+
+  // serve games on the address given by the first argument -- a port on localhost, a
+  // host:port, or unix:path -- to at most the number of connections given by the second
+  // (100000 by default)
+  public static void main(String[] args) throws IOException {
+    int maxSessions = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+    try (GameServer server = new GameServer(parseAddress(args[0]), maxSessions)) {
+      System.out.println("serving games on " + server.address);
+      server.serve();
+    }
+  }
+
+  // the socket address the given text names: unix:path, host:port, or just a port on
+  // localhost
+  static SocketAddress parseAddress(String text) {
+    if (text.startsWith("unix:")) {
+      return UnixDomainSocketAddress.of(text.substring(5));
+    }
+    int colon = text.lastIndexOf(':');
+    if (colon < 0) {
+      return new InetSocketAddress("localhost", Integer.parseInt(text));
+    }
+    return new InetSocketAddress(text.substring(0, colon),
+        Integer.parseInt(text.substring(colon + 1)));
+  }
+
+  // EFFECT: serve every connection until this server is closed
+  void serve() throws IOException {
+    this.serving = true;
+    try {
+      this.serveUntilClosed();
+    }
+    finally {
+      this.serving = false;
+      this.shutDown();
+    }
+  }
+
+  // EFFECT: serve every connection until close is called
+  void serveUntilClosed() throws IOException {
+    while (!this.closed) {
+      this.selector.select();
+      Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+        if (key.isAcceptable()) {
+          try {
+            this.accept();
+          }
+          catch (IOException e) { // out of file descriptors, say: try again next time
+            System.err.println("Couldn't accept a connection: " + e.getMessage());
+          }
+          continue;
+        }
+        try {
+          if (key.isWritable()) {
+            this.write(key);
+          }
+          if (key.isValid() && key.isReadable()) {
+            this.read(key);
+          }
+        }
+        catch (IOException e) {
+          this.hangUp(key); // the client went away
+        }
+      }
+    }
+  }
+
+  // EFFECT: take every connection waiting to be accepted, turning away any beyond
+  // maxSessions
+  void accept() throws IOException {
+    SocketChannel channel = this.server.accept();
+    while (channel != null) {
+      if (this.numSessions >= this.maxSessions) {
+        channel.write(ByteBuffer.wrap("ERR server full\n".getBytes(StandardCharsets.US_ASCII)));
+        channel.close();
+      }
+      else {
+        channel.configureBlocking(false);
+        channel.register(this.selector, SelectionKey.OP_READ, new Session());
+        this.numSessions += 1;
+      }
+      channel = this.server.accept();
+    }
+  }
+
+  // EFFECT: read what the connection of the given key has sent, and answer each whole
+  // request in it
+  void read(SelectionKey key) throws IOException {
+    SocketChannel channel = (SocketChannel) key.channel();
+    Session session = (Session) key.attachment();
+    ByteBuffer in = this.readBuffer;
+    in.clear();
+    if (session.partial != null) {
+      in.put(session.partial);
+      session.partial = null;
+    }
+    if (channel.read(in) < 0) {
+      this.hangUp(key);
+      return;
+    }
+    in.flip();
+
+    this.reply.setLength(0);
+    boolean quit = false;
+    int lineStart = in.position();
+    for (int i = lineStart; i < in.limit() && !quit; i++) {
+      if (in.get(i) == '\n') {
+        quit = this.handle(session, line(in, lineStart, i));
+        lineStart = i + 1;
+      }
+    }
+    if (!quit && in.limit() - lineStart > MAX_LINE) {
+      this.reply.append("ERR request too long\n");
+      quit = true;
+    }
+    else if (!quit && lineStart < in.limit()) {
+      session.partial = new byte[in.limit() - lineStart]; // the start of the next request
+      in.position(lineStart);
+      in.get(session.partial);
+    }
+
+    session.closing = quit;
+    if (this.reply.length() > 0) {
+      this.send(key, this.reply);
+    }
+    else if (quit) {
+      this.hangUp(key);
+    }
+  }
+
+  // the request in the given buffer from the given start up to the given end (without any
+  // carriage return before it)
+  static String line(ByteBuffer in, int start, int end) {
+    if (end > start && in.get(end - 1) == '\r') {
+      end -= 1;
+    }
+    byte[] bytes = new byte[end - start];
+    in.get(start, bytes);
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+
+  // EFFECT: write the given reply to the connection of the given key, and keep whatever
+  // doesn't fit to write once it has room (reading nothing more from it until then)
+  void send(SelectionKey key, CharSequence text) throws IOException {
+    Session session = (Session) key.attachment();
+    ByteBuffer out = StandardCharsets.US_ASCII.encode(CharBuffer.wrap(text));
+    ((SocketChannel) key.channel()).write(out);
+    if (out.hasRemaining()) {
+      session.pending = out;
+      key.interestOps(SelectionKey.OP_WRITE);
+    }
+    else if (session.closing) {
+      this.hangUp(key);
+    }
+  }
+
+  // EFFECT: write more of the reply waiting for the connection of the given key, and go
+  // back to reading from it once it's all written
+  void write(SelectionKey key) throws IOException {
+    Session session = (Session) key.attachment();
+    ((SocketChannel) key.channel()).write(session.pending);
+    if (!session.pending.hasRemaining()) {
+      session.pending = null;
+      if (session.closing) {
+        this.hangUp(key);
+      }
+      else {
+        key.interestOps(SelectionKey.OP_READ);
+      }
+    }
+  }
+
+  // EFFECT: close the connection of the given key, and drop its game
+  void hangUp(SelectionKey key) {
+    key.cancel();
+    try {
+      key.channel().close();
+    }
+    catch (IOException e) {
+      // it's gone either way
+    }
+    if (key.attachment() != null) {
+      key.attach(null);
+      this.numSessions -= 1;
+    }
+  }
+
+  // answer the given request of the given session, adding the answer to this server's reply;
+  // return whether the connection should be closed afterward
+  // EFFECT: play the request's move on the session's game, or replace its game
+  boolean handle(Session session, String request) {
+    String[] words = request.trim().split(" +");
+    String command = words[0];
+    try {
+      if (command.equals("Q")) {
+        this.reply.append("BYE\n");
+        return true;
+      }
+      else if (command.equals("NEW") && (words.length == 4 || words.length == 5)) {
+        int rows = Integer.parseInt(words[1]);
+        int cols = Integer.parseInt(words[2]);
+        int mines = Integer.parseInt(words[3]);
+        if ((long) rows * cols > MAX_CELLS) {
+          throw new IllegalArgumentException("Cannot have more than " + MAX_CELLS + " cells.");
+        }
+        long seed = words.length == 5 ? Long.parseLong(words[4]) : this.seeds.nextLong();
+        session.game = new Game(rows, cols, mines, seed);
+        this.reply.append("OK ").append(Game.PLAYING).append(" 0 0\n");
+      }
+      else if (session.game == null) {
+        this.reply.append("ERR no game yet (send NEW rows cols mines)\n");
+      }
+      else if (command.equals("S") && words.length == 1) {
+        this.showBoard(session.game);
+      }
+      else if ((command.equals("R") || command.equals("F") || command.equals("C"))
+          && words.length == 2) {
+        this.play(session.game, command, Integer.parseInt(words[1]));
+      }
+      else {
+        this.reply.append("ERR unknown request: ").append(request).append('\n');
+      }
+    }
+    catch (IllegalArgumentException e) { // a bad number, or a bad game
+      this.reply.append("ERR ").append(e.getMessage()).append('\n');
+    }
+    return false;
+  }
+
+  // EFFECT: play the given move on the cell at the given index of the given game, as a
+  // click on a Board does, and add the cells it changed to this server's reply
+  void play(Game game, String command, int index) {
+    Grid grid = game.grid;
+    if (index < 0 || index >= grid.size()) {
+      throw new IllegalArgumentException("No cell " + index + " on this board.");
+    }
+    grid.clearChanged();
+    if (command.equals("R")) {
+      game.reveal(index);
+    }
+    else if (command.equals("F")) {
+      game.flag(index);
+    }
+    else {
+      game.chord(index);
+    }
+
+    this.reply.append("OK ").append(game.status()).append(' ').append(game.visibleCells);
+    if (grid.allChanged) {
+      this.reply.append(" -1");
+    }
+    else {
+      this.reply.append(' ').append(grid.numChanged);
+      for (int i = 0; i < grid.numChanged; i++) {
+        int changed = grid.changed[i];
+        this.reply.append(' ').append(changed).append('=').append(symbol(grid, changed));
+      }
+    }
+    this.reply.append('\n');
+    grid.clearChanged();
+  }
+
+  // EFFECT: add every cell of the given game to this server's reply, row by row
+  void showBoard(Game game) {
+    Grid grid = game.grid;
+    this.reply.append("BOARD ").append(game.status()).append(' ').append(game.rows).append(' ')
+        .append(game.cols).append(' ');
+    for (int i = 0; i < grid.size(); i++) {
+      this.reply.append(symbol(grid, i));
+    }
+    this.reply.append('\n');
+    grid.clearChanged();
+  }
+
+  // the symbol the protocol shows for the cell at the given index of the given grid
+  static char symbol(Grid grid, int index) {
+    if (grid.isFlagged(index)) {
+      return 'F';
+    }
+    else if (!grid.isClicked(index)) {
+      return '-';
+    }
+    else if (grid.isMine(index)) {
+      return '*';
+    }
+    else {
+      return (char) ('0' + grid.mineNeighbors[index]);
+    }
+  }
+
+  // EFFECT: stop serving (from any thread), and close every connection (and remove a Unix
+  // domain socket's file) -- once serve notices, if it's running
+  public void close() throws IOException {
+    this.closed = true;
+    if (this.serving) {
+      this.selector.wakeup();
+    }
+    else {
+      this.shutDown();
+    }
+  }
+
+  // EFFECT: close every connection, the server's own channel, and its selector (if they're
+  // still open)
+  synchronized void shutDown() throws IOException {
+    if (!this.selector.isOpen()) {
+      return;
+    }
+    for (SelectionKey key : this.selector.keys()) {
+      key.channel().close();
+    }
+    this.selector.close();
+    this.server.close();
+    if (this.address instanceof UnixDomainSocketAddress) {
+      Files.deleteIfExists(((UnixDomainSocketAddress) this.address).getPath());
+    }
+  }
+}
+
+// to represent one client's connection to a GameServer
+class Session {
+  Game game; // null until the client starts one
+  byte[] partial; // the start of a request not yet read in full (null => none)
+  ByteBuffer pending; // the rest of a reply not yet written in full (null => none)
+  boolean closing; // should the connection be closed once its reply is written?
+}
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                   LOAD GENERATOR                                  *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent a load test of a GameServer: many clients on one selector, each playing
+// random reveals and flags (one request at a time, waiting for each reply) and starting a new
+// game whenever its game ends, until it has made its share of moves
+// each request's round trip is timed into a Histogram
+class LoadGenerator {
+  static final int MAX_CONNECTING = 256; // connections started but not yet made, at most
+
+  SocketAddress address;
+  int numClients;
+  int movesPerClient;
+  int rows;
+  int cols;
+  int mines;
+  Selector selector;
+  Random rand;
+  Histogram latency; // of every request's round trip
+  ByteBuffer readBuffer; // shared by every client
+  int started; // how many clients have started connecting
+  int connecting; // how many of those are still connecting
+  int finished; // how many have hung up, or failed to connect
+  int failures; // how many failed to connect, or were hung up on early
+  long moves; // moves made, by every client
+  long games; // games started, by every client
+  long errors; // ERR replies
+
+  LoadGenerator(SocketAddress address, int numClients, int movesPerClient, int rows, int cols,
+      int mines, long seed) {
+    this.address = address;
+    this.numClients = numClients;
+    this.movesPerClient = movesPerClient;
+    this.rows = rows;
+    this.cols = cols;
+    this.mines = mines;
+    this.rand = new Random(seed);
+    this.latency = new Histogram("round trip");
+    this.readBuffer = ByteBuffer.allocate(GameServer.READ_BYTES);
+  }
+
+  // run a load test against the server at the address given by the first argument (as for
+  // GameServer.main), with the given number of clients (1000 by default), moves per client
+  // (100), and board size and mines (16 30 99)
+  public static void main(String[] args) throws IOException {
+    SocketAddress address = GameServer.parseAddress(args[0]);
+    int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int moves = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+    int rows = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+    int cols = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+    int mines = args.length > 5 ? Integer.parseInt(args[5]) : 99;
+    LoadGenerator generator = new LoadGenerator(address, clients, moves, rows, cols, mines,
+        new Random().nextLong());
+    long start = System.nanoTime();
+    generator.run();
+    System.out.println(generator.report(System.nanoTime() - start));
+  }
+
+  // EFFECT: connect every client, and play until each has made its moves and hung up
+  void run() throws IOException {
+    this.selector = Selector.open();
+    try {
+      while (this.finished < this.numClients) {
+        while (this.started < this.numClients && this.connecting < MAX_CONNECTING) {
+          this.connect();
+        }
+        if (this.finished == this.numClients) {
+          break; // the last clients failed to connect at once: nothing is left to wait for
+        }
+        this.selector.select();
+        Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          try {
+            if (key.isConnectable()) {
+              this.connected(key);
+            }
+            else if (key.isReadable()) {
+              this.read(key);
+            }
+          }
+          catch (IOException e) {
+            this.failures += 1;
+            this.finish(key);
+          }
+        }
+      }
+    }
+    finally {
+      this.selector.close();
+    }
+  }
+
+  // EFFECT: start connecting one more client (counted as failed and finished at once if
+  // it can't even start)
+  void connect() {
+    Client client = new Client(this.rand.nextLong());
+    this.started += 1;
+    SocketChannel channel = null;
+    try {
+      channel = this.address instanceof UnixDomainSocketAddress
+          ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+      channel.configureBlocking(false);
+      if (channel.connect(this.address)) {
+        this.start(channel.register(this.selector, SelectionKey.OP_READ, client));
+      }
+      else {
+        channel.register(this.selector, SelectionKey.OP_CONNECT, client);
+        this.connecting += 1;
+      }
+    }
+    catch (IOException e) {
+      this.failures += 1;
+      this.finished += 1;
+      if (channel != null) {
+        try {
+          channel.close(); // and with it, its key if it has one
+        }
+        catch (IOException closing) {
+          // it's gone either way
+        }
+      }
+    }
+  }
+
+  // EFFECT: finish connecting the client of the given key, and start its first game
+  // (it's no longer connecting either way: if the connection can't be made, finishConnect
+  // closes the channel, and run finishes the client as failed)
+  void connected(SelectionKey key) throws IOException {
+    try {
+      ((SocketChannel) key.channel()).finishConnect();
+    }
+    finally {
+      this.connecting -= 1;
+    }
+    key.interestOps(SelectionKey.OP_READ);
+    this.start(key);
+  }
+
+  // EFFECT: start a new game for the client of the given key
+  void start(SelectionKey key) throws IOException {
+    Client client = (Client) key.attachment();
+    client.hidden = new boolean[this.rows * this.cols];
+    Arrays.fill(client.hidden, true);
+    client.numHidden = client.hidden.length;
+    this.games += 1;
+    this.send(key, "NEW " + this.rows + " " + this.cols + " " + this.mines + " "
+        + client.rand.nextLong());
+  }
+
+  // EFFECT: write the given request to the connection of the given key, and time it
+  // (requests are short enough to write in full)
+  void send(SelectionKey key, String request) throws IOException {
+    Client client = (Client) key.attachment();
+    client.sentAt = System.nanoTime();
+    ByteBuffer out = ByteBuffer.wrap((request + "\n").getBytes(StandardCharsets.US_ASCII));
+    while (out.hasRemaining()) {
+      ((SocketChannel) key.channel()).write(out);
+    }
+  }
+
+  // EFFECT: read what the server has sent the client of the given key, and answer each
+  // whole reply with its next request
+  void read(SelectionKey key) throws IOException {
+    Client client = (Client) key.attachment();
+    ByteBuffer in = this.readBuffer;
+    in.clear();
+    int numRead = ((SocketChannel) key.channel()).read(in);
+    if (numRead < 0) {
+      this.failures += 1; // hung up on before its moves were done
+      this.finish(key);
+      return;
+    }
+    for (int i = 0; i < numRead; i++) {
+      byte next = in.get(i);
+      if (next == '\n') {
+        this.answer(key, client.line.toString());
+        client.line.setLength(0);
+      }
+      else {
+        client.line.append((char) next);
+      }
+    }
+  }
+
+  // EFFECT: take in the given reply to the client of the given key, and send its next
+  // request (or hang up)
+  void answer(SelectionKey key, String reply) throws IOException {
+    Client client = (Client) key.attachment();
+    this.latency.record(System.nanoTime() - client.sentAt);
+    String[] words = reply.split(" ");
+    boolean over = false;
+    if (words[0].equals("BYE")) {
+      this.finish(key);
+      return;
+    }
+    else if (words[0].equals("OK")) {
+      over = !words[1].equals(String.valueOf(Game.PLAYING));
+      if (words[3].equals("-1")) {
+        this.send(key, "S"); // too many changes to list: see the whole board
+        return;
+      }
+      for (int i = 4; i < words.length; i++) { // index=symbol changes
+        int equals = words[i].indexOf('=');
+        client.see(Integer.parseInt(words[i].substring(0, equals)),
+            words[i].charAt(equals + 1));
+      }
+    }
+    else if (words[0].equals("BOARD")) {
+      over = !words[1].equals(String.valueOf(Game.PLAYING));
+      for (int i = 0; i < words[4].length(); i++) {
+        client.see(i, words[4].charAt(i));
+      }
+    }
+    else {
+      this.errors += 1;
+    }
+
+    if (client.moves == this.movesPerClient) {
+      this.send(key, "Q");
+    }
+    else if (over) {
+      this.start(key);
+    }
+    else {
+      client.moves += 1;
+      this.moves += 1;
+      int index = client.rand.nextInt(client.hidden.length);
+      while (client.numHidden > 0 && !client.hidden[index]) {
+        index = client.rand.nextInt(client.hidden.length);
+      }
+      // with nothing left hidden, some flag must be wrong: toggle one at random
+      boolean flag = client.numHidden == 0 || client.rand.nextInt(8) == 0;
+      this.send(key, (flag ? "F " : "R ") + index);
+    }
+  }
+
+  // EFFECT: hang up the client of the given key
+  void finish(SelectionKey key) {
+    key.cancel();
+    try {
+      key.channel().close();
+    }
+    catch (IOException e) {
+      // it's gone either way
+    }
+    this.finished += 1;
+  }
+
+  // a report of how this load test went, given how long it took
+  String report(long nanos) {
+    return String.format("%d clients (%d failed), %d games, %d moves, %d errors%n"
+        + "%.3f s, %.1f moves/s%n%s", this.numClients, this.failures, this.games, this.moves,
+        this.errors, nanos / 1e9, this.moves * 1e9 / nanos, this.latency.toText());
+  }
+}
+
+// to represent one client of a LoadGenerator, and what it knows of its game
+class Client {
+  Random rand;
+  StringBuilder line; // the reply read so far
+  boolean[] hidden; // which cells it hasn't seen revealed (or flagged)
+  int numHidden;
+  int moves; // how many moves it's made
+  long sentAt; // when its last request was sent
+
+  Client(long seed) {
+    this.rand = new Random(seed);
+    this.line = new StringBuilder();
+    this.moves = 0;
+  }
+
+  // EFFECT: note that the cell at the given index now shows the given symbol
+  void see(int index, char symbol) {
+    boolean hidden = symbol == '-';
+    if (hidden != this.hidden[index]) {
+      this.hidden[index] = hidden;
+      this.numHidden += hidden ? 1 : -1;
+    }
+  }
+}
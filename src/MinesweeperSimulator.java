@@ -0,0 +1,210 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                      SIMULATOR                                    *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent a batch of independent games, played by one strategy across every core
+// (each game is seeded from the master seed and its own number alone, so a batch plays out
+// the same no matter how many threads run it)
+//
+// usage: java Simulator rows cols mines games [seed] [threads]
+class Simulator {
+  static final int GAMES_PER_TASK = 16; // batches of at most this many games aren't split
+
+  int rows;
+  int cols;
+  int mines;
+  IStrategy strategy; // shared by every thread, so it must not keep state between games
+
+  Simulator(int rows, int cols, int mines, IStrategy strategy) {
+    this.rows = rows;
+    this.cols = cols;
+    this.mines = mines;
+    this.strategy = strategy;
+  }
+
+  public static void main(String[] args) {
+    int rows = Integer.parseInt(args[0]);
+    int cols = Integer.parseInt(args[1]);
+    int mines = Integer.parseInt(args[2]);
+    int games = Integer.parseInt(args[3]);
+    long seed = args.length > 4 ? Long.parseLong(args[4]) : new Random().nextLong();
+    int threads = args.length > 5 ? Integer.parseInt(args[5])
+        : Runtime.getRuntime().availableProcessors();
+
+    Simulator simulator = new Simulator(rows, cols, mines, new RandomStrategy());
+    System.out.println("seed " + seed + ", " + threads + " threads");
+    System.out.println(simulator.simulate(games, seed, threads));
+  }
+
+  // play the given number of games from the given master seed on a pool of the given number
+  // of threads, and report how they went
+  SimulationReport simulate(int games, long masterSeed, int threads) {
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      long start = System.nanoTime();
+      SimulationReport report = pool.invoke(new SimulationTask(this, masterSeed, 0, games));
+      report.wallNanos = System.nanoTime() - start;
+      report.threads = threads;
+      return report;
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  // play the game with the given number, seeded from the given master seed, to its end
+  // EFFECT: add how it went to the given report
+  void play(long masterSeed, int number, SimulationReport report) {
+    long start = System.nanoTime();
+    Random rand = new Random(gameSeed(masterSeed, number));
+    Game game = new Game(this.rows, this.cols, this.mines, rand);
+
+    int reveals = 0;
+    while (!game.gameOver) {
+      int index = this.strategy.nextReveal(game, rand);
+      if (game.grid.isClicked(index) || game.grid.isFlagged(index)) {
+        throw new IllegalStateException("Strategy chose a cell that can't be revealed.");
+      }
+      game.reveal(index);
+      reveals += 1;
+    }
+
+    report.games += 1;
+    report.wins += game.win ? 1 : 0;
+    report.reveals += reveals;
+    report.cellsRevealed += game.visibleCells;
+    report.gameNanos += System.nanoTime() - start;
+  }
+
+  // the seed of the game with the given number in a batch with the given master seed
+  // (the SplitMix64 finalizer, over a Weyl sequence: neighboring numbers and seeds give
+  // unrelated streams)
+  static long gameSeed(long masterSeed, int number) {
+    long z = masterSeed + (number + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
+
+// to represent a range of games in a batch, split in half until it's small enough to play
+class SimulationTask extends RecursiveTask<SimulationReport> {
+  private static final long serialVersionUID = 1L;
+
+  Simulator simulator;
+  long masterSeed;
+  int from; // the first game's number
+  int to; // one past the last game's number
+
+  SimulationTask(Simulator simulator, long masterSeed, int from, int to) {
+    this.simulator = simulator;
+    this.masterSeed = masterSeed;
+    this.from = from;
+    this.to = to;
+  }
+
+  protected SimulationReport compute() {
+    if (this.to - this.from <= Simulator.GAMES_PER_TASK) {
+      SimulationReport report = new SimulationReport();
+      for (int i = this.from; i < this.to; i++) {
+        this.simulator.play(this.masterSeed, i, report);
+      }
+      return report;
+    }
+
+    int mid = (this.from + this.to) >>> 1;
+    SimulationTask left = new SimulationTask(this.simulator, this.masterSeed, this.from, mid);
+    left.fork();
+    SimulationReport report =
+        new SimulationTask(this.simulator, this.masterSeed, mid, this.to).compute();
+    report.add(left.join());
+    return report;
+  }
+}
+
+// to represent the totals of a batch of simulated games
+class SimulationReport {
+  int games;
+  int wins;
+  long reveals; // how many cells the strategy chose to reveal
+  long cellsRevealed; // how many cells those reveals uncovered (counting flood fills)
+  long gameNanos; // total time spent in games, across every thread
+  long wallNanos; // time the whole batch took
+  int threads;
+
+  // EFFECT: add the given report's totals to this one's
+  void add(SimulationReport other) {
+    this.games += other.games;
+    this.wins += other.wins;
+    this.reveals += other.reveals;
+    this.cellsRevealed += other.cellsRevealed;
+    this.gameNanos += other.gameNanos;
+  }
+
+  // what fraction of the games were won?
+  double winRate() {
+    return this.games == 0 ? 0 : (double) this.wins / this.games;
+  }
+
+  // how many games were played per second of the batch?
+  double gamesPerSecond() {
+    return this.wallNanos == 0 ? 0 : this.games * 1e9 / this.wallNanos;
+  }
+
+  public String toString() {
+    double games = Math.max(this.games, 1);
+    return String.format("%d games, %d won (%.2f%%)%n"
+        + "%.2f reveals and %.1f cells revealed per game%n"
+        + "%.3f s wall, %.3f ms per game, %.1f games/s on %d threads",
+        this.games, this.wins, 100 * this.winRate(), this.reveals / games,
+        this.cellsRevealed / games, this.wallNanos / 1e9, this.gameNanos / games / 1e6,
+        this.gamesPerSecond(), this.threads);
+  }
+}
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                     STRATEGIES                                    *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent a way of playing a game: choosing which cell to reveal next
+interface IStrategy {
+  // choose a hidden, unflagged cell of the given (ongoing) game to reveal, using the given
+  // random source for any guesses; the strategy may flag cells of the game along the way
+  int nextReveal(Game game, Random rand);
+}
+
+// to represent a strategy that reveals any hidden, unflagged cell at random
+class RandomStrategy implements IStrategy {
+  static final int TRIES = 64; // random picks to try before falling back on a scan
+
+  public int nextReveal(Game game, Random rand) {
+    Grid grid = game.grid;
+    int size = grid.size();
+    for (int i = 0; i < TRIES; i++) {
+      int index = rand.nextInt(size);
+      if (!grid.isClicked(index) && !grid.isFlagged(index)) {
+        return index;
+      }
+    }
+
+    // few cells are left: pick uniformly among them (the grid keeps count of them)
+    int hidden = size - grid.numClicked - grid.numFlagged;
+    if (hidden == 0) {
+      throw new IllegalStateException("No cell left to reveal.");
+    }
+    int pick = rand.nextInt(hidden);
+    for (int i = 0; i < size; i++) {
+      if (!grid.isClicked(i) && !grid.isFlagged(i)) {
+        if (pick == 0) {
+          return i;
+        }
+        pick -= 1;
+      }
+    }
+    return -1; // unreachable: pick < hidden
+  }
+}
@@ -0,0 +1,461 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                        SOLVER                                     *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent a solver that deduces, from what is visible on a game's board, which hidden
+// cells must be safe and which must be mines
+// every visible number is a constraint: its unknown (hidden, unflagged) neighbors hold its
+// count of mine neighbors, less its flagged neighbors (flags are trusted to be right)
+// a constraint's cells are kept as a bitmask over the 3x3 square around its number, and two
+// constraints near enough to share cells are compared as bitmasks over the 7x7 square
+// around the first; components of the frontier too tangled for that are enumerated over
+// bitmasks of their cells
+// (one solver can be reused for any number of games, one at a time)
+class Solver {
+  static final int ENUMERATION_LIMIT = 48; // larger frontier components aren't enumerated
+  static final int SEARCH_BUDGET = 1 << 20; // most assignments tried per component
+
+  Game game; // the game last solved
+  Grid grid; // that game's grid, when it was solved
+
+  // constraints, rebuilt by each solve
+  int[] cells; // the cell of each constraint's number
+  int[] masks; // each constraint's unknown cells: bit (dr + 1) * 3 + (dc + 1) of its square
+  int[] values; // how many of each constraint's unknown cells are mines
+  int numConstraints;
+  int[] constraintAt; // the constraint of each cell's number, or -1 (one entry per cell)
+
+  // deductions, found by each solve
+  long[] known; // bit i is set if cell i has been deduced to be safe or a mine
+  int[] safeCells; // the cells deduced to be safe, in the order they were found
+  int numSafe;
+  int[] mineCells; // the cells deduced to be mines, in the order they were found
+  int numMines;
+
+  // scratch space for enumerating one frontier component at a time
+  long[] seen; // bit i is set if cell i has been put in a component
+  boolean[] constraintSeen;
+  int[] queue; // the component's constraints, in the order they were found
+  int[] vars; // the component's cells, in the order they were found
+  int numVars;
+  int[] varAt; // each cell's number in its component (one entry per cell)
+  long[] varMasks; // each of the component's constraints, as a bitmask of its cells' numbers
+  int[] varConstraints; // the (up to 8) constraints of each component cell, 8 slots apiece
+  int[] numVarConstraints;
+  int[] minesSoFar; // how many mines the current assignment puts in each constraint
+  int[] unassigned; // how many of each constraint's cells the assignment hasn't reached
+  long[] mineCounts; // in how many solutions each component cell is a mine
+  long solutions;
+  int budget;
+
+  Solver() {
+    this.cells = new int[16];
+    this.masks = new int[16];
+    this.values = new int[16];
+    this.safeCells = new int[16];
+    this.mineCells = new int[16];
+    this.constraintSeen = new boolean[16];
+    this.queue = new int[16];
+    this.vars = new int[ENUMERATION_LIMIT];
+    this.varMasks = new long[16];
+    this.varConstraints = new int[ENUMERATION_LIMIT * 8];
+    this.numVarConstraints = new int[ENUMERATION_LIMIT];
+    this.minesSoFar = new int[16];
+    this.unassigned = new int[16];
+    this.mineCounts = new long[ENUMERATION_LIMIT];
+  }
+
+  // deduce which hidden cells of the given game are safe, and which are mines; the cheapest
+  // rules are tried first, and the more costly ones only if they find nothing
+  // return how many cells were deduced (see safeCells and mineCells)
+  int solve(Game game) {
+    this.prepare(game);
+    this.findConstraints();
+    this.applySingleRules();
+    if (this.numSafe + this.numMines == 0) {
+      this.applyPairRules();
+    }
+    if (this.numSafe + this.numMines == 0) {
+      this.enumerateComponents();
+    }
+    return this.numSafe + this.numMines;
+  }
+
+  // solve the given game, then flag every mine and reveal every safe cell found, just as
+  // right- and left-clicks on them would
+  // return how many cells were deduced
+  int step(Game game) {
+    int found = this.solve(game);
+    for (int i = 0; i < this.numMines; i++) {
+      if (!game.grid.isFlagged(this.mineCells[i])) {
+        game.flag(this.mineCells[i]);
+      }
+    }
+    for (int i = 0; i < this.numSafe; i++) {
+      game.reveal(this.safeCells[i]);
+    }
+    return found;
+  }
+
+  // step through the given game until it ends or nothing more can be deduced
+  // return how many cells were deduced in all
+  int solveAll(Game game) {
+    int total = 0;
+    int found = 1;
+    while (!game.gameOver && found > 0) {
+      found = this.step(game);
+      total += found;
+    }
+    return total;
+  }
+
+  // EFFECT: forget the last solve, and size this solver's per-cell arrays to the given game
+  void prepare(Game game) {
+    int size = game.grid.size();
+    if (this.constraintAt == null || this.constraintAt.length != size) {
+      this.constraintAt = new int[size];
+      Arrays.fill(this.constraintAt, -1);
+      this.varAt = new int[size];
+      this.known = new long[(size + 63) / 64];
+      this.seen = new long[(size + 63) / 64];
+    }
+    else {
+      // only the entries the last solve set need resetting
+      for (int i = 0; i < this.numConstraints; i++) {
+        this.constraintAt[this.cells[i]] = -1;
+      }
+      Arrays.fill(this.known, 0);
+      Arrays.fill(this.seen, 0);
+    }
+    this.game = game;
+    this.grid = game.grid;
+    this.numConstraints = 0;
+    this.numSafe = 0;
+    this.numMines = 0;
+  }
+
+  // EFFECT: make a constraint of every visible number with unknown neighbors
+  // (numbers contradicted by the flags around them are left out)
+  void findConstraints() {
+    Grid g = this.grid;
+    for (int index = 0; index < g.size(); index++) {
+      if (g.isClicked(index) && !g.isMine(index) && g.mineNeighbors[index] > 0) {
+        int row = index / g.cols;
+        int col = index - row * g.cols;
+        int mask = 0;
+        int flagged = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+          for (int dc = -1; dc <= 1; dc++) {
+            int r = row + dr;
+            int c = col + dc;
+            if ((dr != 0 || dc != 0) && r >= 0 && r < g.rows && c >= 0 && c < g.cols) {
+              int i = r * g.cols + c;
+              if (g.isFlagged(i)) {
+                flagged += 1;
+              }
+              else if (!g.isClicked(i)) {
+                mask |= 1 << ((dr + 1) * 3 + dc + 1);
+              }
+            }
+          }
+        }
+
+        int value = g.mineNeighbors[index] - flagged;
+        if (mask != 0 && value >= 0 && value <= Integer.bitCount(mask)) {
+          this.addConstraint(index, mask, value);
+        }
+      }
+    }
+  }
+
+  // EFFECT: add a constraint that the given cell's unknown neighbors (in the given mask)
+  // hold the given number of mines
+  void addConstraint(int cell, int mask, int value) {
+    if (this.numConstraints == this.cells.length) {
+      int length = this.numConstraints * 2;
+      this.cells = Arrays.copyOf(this.cells, length);
+      this.masks = Arrays.copyOf(this.masks, length);
+      this.values = Arrays.copyOf(this.values, length);
+    }
+    this.cells[this.numConstraints] = cell;
+    this.masks[this.numConstraints] = mask;
+    this.values[this.numConstraints] = value;
+    this.constraintAt[cell] = this.numConstraints;
+    this.numConstraints += 1;
+  }
+
+  // EFFECT: deduce the cells of every constraint that has no mines left (all safe), or
+  // exactly as many mines as unknown cells (all mines)
+  void applySingleRules() {
+    for (int i = 0; i < this.numConstraints; i++) {
+      int count = Integer.bitCount(this.masks[i]);
+      if (this.values[i] == 0 || this.values[i] == count) {
+        this.markSquare(this.cells[i], this.masks[i], this.values[i] == count);
+      }
+    }
+  }
+
+  // EFFECT: compare every constraint with every other it shares cells with; if the cells
+  // only the first has must hold all of the difference between their mines, those cells
+  // are all mines, and the cells only the second has are all safe
+  // (this covers one constraint's cells being a subset of another's, too)
+  void applyPairRules() {
+    Grid g = this.grid;
+    for (int a = 0; a < this.numConstraints; a++) {
+      int cellA = this.cells[a];
+      int rowA = cellA / g.cols;
+      int colA = cellA - rowA * g.cols;
+      long maskA = expand(this.masks[a], 0, 0);
+
+      for (int dr = -2; dr <= 2; dr++) {
+        for (int dc = -2; dc <= 2; dc++) {
+          int r = rowA + dr;
+          int c = colA + dc;
+          if ((dr != 0 || dc != 0) && r >= 0 && r < g.rows && c >= 0 && c < g.cols) {
+            int b = this.constraintAt[r * g.cols + c];
+            if (b >= 0) {
+              long maskB = expand(this.masks[b], dr, dc);
+              long onlyA = maskA & ~maskB;
+              if ((maskA & maskB) != 0
+                  && this.values[a] - this.values[b] == Long.bitCount(onlyA)) {
+                this.markFrame(cellA, onlyA, true);
+                this.markFrame(cellA, maskB & ~maskA, false);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  // the given 3x3 square's mask, moved into the 7x7 square around the cell the given rows
+  // and columns before its center (bit (dr + 3) * 7 + (dc + 3) of the larger square)
+  static long expand(int mask, int dr, int dc) {
+    long frame = 0;
+    for (int bits = mask; bits != 0; bits &= bits - 1) {
+      int bit = Integer.numberOfTrailingZeros(bits);
+      frame |= 1L << ((bit / 3 + 2 + dr) * 7 + bit % 3 + 2 + dc);
+    }
+    return frame;
+  }
+
+  // EFFECT: deduce every cell in the given mask of the 3x3 square around the given cell to
+  // be a mine (if given true) or safe
+  void markSquare(int center, int mask, boolean isMine) {
+    for (int bits = mask; bits != 0; bits &= bits - 1) {
+      int bit = Integer.numberOfTrailingZeros(bits);
+      this.mark(center + (bit / 3 - 1) * this.grid.cols + bit % 3 - 1, isMine);
+    }
+  }
+
+  // EFFECT: deduce every cell in the given mask of the 7x7 square around the given cell to
+  // be a mine (if given true) or safe
+  void markFrame(int center, long mask, boolean isMine) {
+    for (long bits = mask; bits != 0; bits &= bits - 1) {
+      int bit = Long.numberOfTrailingZeros(bits);
+      this.mark(center + (bit / 7 - 3) * this.grid.cols + bit % 7 - 3, isMine);
+    }
+  }
+
+  // EFFECT: deduce the given cell to be a mine (if given true) or safe, unless it already
+  // has been
+  void mark(int cell, boolean isMine) {
+    long bit = 1L << cell;
+    if ((this.known[cell >>> 6] & bit) == 0) {
+      this.known[cell >>> 6] |= bit;
+      if (isMine) {
+        if (this.numMines == this.mineCells.length) {
+          this.mineCells = Arrays.copyOf(this.mineCells, this.numMines * 2);
+        }
+        this.mineCells[this.numMines] = cell;
+        this.numMines += 1;
+      }
+      else {
+        if (this.numSafe == this.safeCells.length) {
+          this.safeCells = Arrays.copyOf(this.safeCells, this.numSafe * 2);
+        }
+        this.safeCells[this.numSafe] = cell;
+        this.numSafe += 1;
+      }
+    }
+  }
+
+  /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+   *                                    ENUMERATION                                    *
+   * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+  // EFFECT: split the frontier (the unknown cells next to a constraint) into components that
+  // share no constraints, and try every assignment of mines to each small enough one; a cell
+  // that is safe in every solution is safe, and one that is a mine in every solution is
+  // a mine
+  void enumerateComponents() {
+    this.startComponents();
+    for (int i = 0; i < this.numConstraints; i++) {
+      if (!this.constraintSeen[i]) {
+        int numQueued = this.findComponent(i);
+        if (this.numVars <= ENUMERATION_LIMIT) {
+          this.enumerate(numQueued);
+          for (int v = 0; v < this.numVars && this.solutions > 0; v++) {
+            if (this.mineCounts[v] == 0 || this.mineCounts[v] == this.solutions) {
+              this.mark(this.vars[v], this.mineCounts[v] != 0);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  // EFFECT: mark every constraint as not yet in a component
+  void startComponents() {
+    if (this.constraintSeen.length < this.numConstraints) {
+      this.constraintSeen = new boolean[this.cells.length];
+    }
+    Arrays.fill(this.constraintSeen, 0, this.numConstraints, false);
+  }
+
+  // find the constraints and cells of the component with the given constraint (see queue
+  // and vars), numbering each cell in varAt
+  // return how many constraints are in the component
+  int findComponent(int first) {
+    Grid g = this.grid;
+    this.constraintSeen[first] = true;
+    this.queue[0] = first;
+    int numQueued = 1;
+    this.numVars = 0;
+
+    for (int head = 0; head < numQueued; head++) {
+      int center = this.cells[this.queue[head]];
+      for (int bits = this.masks[this.queue[head]]; bits != 0; bits &= bits - 1) {
+        int bit = Integer.numberOfTrailingZeros(bits);
+        int cell = center + (bit / 3 - 1) * g.cols + bit % 3 - 1;
+        if ((this.seen[cell >>> 6] & (1L << cell)) != 0) {
+          continue;
+        }
+        this.seen[cell >>> 6] |= 1L << cell;
+        if (this.numVars == this.vars.length) {
+          this.vars = Arrays.copyOf(this.vars, this.numVars * 2);
+        }
+        this.vars[this.numVars] = cell;
+        this.varAt[cell] = this.numVars;
+        this.numVars += 1;
+
+        // every number around this cell constrains it
+        int row = cell / g.cols;
+        int col = cell - row * g.cols;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, g.rows - 1); r++) {
+          for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, g.cols - 1); c++) {
+            int next = this.constraintAt[r * g.cols + c];
+            if (next >= 0 && !this.constraintSeen[next]) {
+              this.constraintSeen[next] = true;
+              if (numQueued == this.queue.length) {
+                this.queue = Arrays.copyOf(this.queue, numQueued * 2);
+              }
+              this.queue[numQueued] = next;
+              numQueued += 1;
+            }
+          }
+        }
+      }
+    }
+    return numQueued;
+  }
+
+  // EFFECT: count the solutions of the component found last, and in how many of them each
+  // of its cells is a mine (gives up, with no solutions, after SEARCH_BUDGET assignments)
+  void enumerate(int numQueued) {
+    if (this.varMasks.length < numQueued) {
+      int length = Math.max(numQueued, this.varMasks.length * 2);
+      this.varMasks = new long[length];
+      this.minesSoFar = new int[length];
+      this.unassigned = new int[length];
+    }
+    Arrays.fill(this.numVarConstraints, 0, this.numVars, 0);
+    Arrays.fill(this.mineCounts, 0, this.numVars, 0);
+
+    Grid g = this.grid;
+    for (int k = 0; k < numQueued; k++) {
+      int constraint = this.queue[k];
+      int center = this.cells[constraint];
+      long varMask = 0;
+      for (int bits = this.masks[constraint]; bits != 0; bits &= bits - 1) {
+        int bit = Integer.numberOfTrailingZeros(bits);
+        int v = this.varAt[center + (bit / 3 - 1) * g.cols + bit % 3 - 1];
+        varMask |= 1L << v;
+        this.varConstraints[v * 8 + this.numVarConstraints[v]] = k;
+        this.numVarConstraints[v] += 1;
+      }
+      this.varMasks[k] = varMask;
+      this.minesSoFar[k] = 0;
+      this.unassigned[k] = Long.bitCount(varMask);
+    }
+
+    this.solutions = 0;
+    this.budget = SEARCH_BUDGET;
+    this.search(0, 0L);
+    if (this.budget < 0) {
+      this.solutions = 0; // ran out of budget: nothing can be concluded
+    }
+  }
+
+  // EFFECT: extend the given assignment (bit v set => cell v is a mine) of the component's
+  // cells before the given one in every way that keeps every constraint satisfiable, and
+  // count the complete ones
+  void search(int v, long assignment) {
+    this.budget -= 1;
+    if (this.budget < 0) {
+      return;
+    }
+    if (v == this.numVars) {
+      this.solutions += 1;
+      for (long bits = assignment; bits != 0; bits &= bits - 1) {
+        this.mineCounts[Long.numberOfTrailingZeros(bits)] += 1;
+      }
+      return;
+    }
+
+    for (int isMine = 0; isMine <= 1; isMine++) {
+      boolean ok = true;
+      for (int k = 0; k < this.numVarConstraints[v]; k++) {
+        int c = this.varConstraints[v * 8 + k];
+        this.unassigned[c] -= 1;
+        this.minesSoFar[c] += isMine;
+        ok = ok && this.minesSoFar[c] <= this.values[this.queue[c]]
+            && this.minesSoFar[c] + this.unassigned[c] >= this.values[this.queue[c]];
+      }
+      if (ok) {
+        this.search(v + 1, assignment | ((long) isMine << v));
+      }
+      for (int k = 0; k < this.numVarConstraints[v]; k++) {
+        int c = this.varConstraints[v * 8 + k];
+        this.unassigned[c] += 1;
+        this.minesSoFar[c] -= isMine;
+      }
+    }
+  }
+}
+
+// to represent a strategy that reveals whatever a solver deduces is safe (and flags whatever
+// it deduces are mines), and otherwise guesses the cell least likely to be a mine
+class SolverStrategy implements IStrategy {
+  // one solver and probability engine per thread, since one strategy plays every game of
+  // a simulation
+  ThreadLocal<Solver> solvers = ThreadLocal.withInitial(Solver::new);
+  ThreadLocal<MineProbabilities> engines = ThreadLocal.withInitial(MineProbabilities::new);
+
+  public int nextReveal(Game game, Random rand) {
+    Solver solver = this.solvers.get();
+    solver.solve(game);
+    for (int i = 0; i < solver.numMines; i++) {
+      if (!game.grid.isFlagged(solver.mineCells[i])) {
+        game.flag(solver.mineCells[i]);
+      }
+    }
+    if (solver.numSafe > 0) {
+      return solver.safeCells[0];
+    }
+    return this.engines.get().safest(game, rand);
+  }
+}
@@ -1,6 +1,7 @@
 // Authored by Mara Hubelbank in April-May 2020; CS2510 @ Northeastern University.
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Random;
 
@@ -12,225 +13,157 @@ import javalib.worldimages.*;
  *                                        BOARD                                      *
  * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
 
-// to represent a Minesweeper board, with a grid of cells and set number of mines
+// to represent a Minesweeper board, drawn and played through the impworld library
+// (the game itself is played out by this board's Game; the board just draws it and passes
+// mouse clicks and key presses along to it)
 class Board extends World {
-  int rows;
-  int cols;
-  int mines;
-  int visibleCells;
-  Random rand;
-  ArrayList<ArrayList<Cell>> cells;
-  ArrayList<Cell> minesList; // used when generating and revealing mines
-  boolean gameOver;
-  boolean win;
+  static final Path SAVE_FILE = Path.of("minesweeper.save"); // written by "w", read by "l"
+
+  Game game; // the state of the game being played on this board
+  WorldScene scene; // the last frame drawn (null => the next frame is drawn from scratch)
+  int numPlaced; // how many images have been placed on the last frame's scene
+  boolean endShown; // has the game-over message been placed on the last frame's scene?
+  Solver solver; // plays a step of the game for the player when "s" is pressed
+  int viewRows; // how many rows of cells are shown at once (every row, on small boards)
+  int viewCols; // how many columns of cells are shown at once
+  int topRow; // the first row shown
+  int leftCol; // the first column shown
+  Posn pressed; // where the mouse was last pressed (a drag from there pans the view)
 
   // convenience constructor to be used in actual game-play (outside of testing)
   Board(int rows, int cols, int mines) {
-    this(rows, cols, mines, new Random());
+    this.game = new Game(rows, cols, mines); // seeded, so a save can record the seed
+    new History(this.game); // so the player can undo and redo
+    this.solver = new Solver();
+    this.initView();
+  }
+
+  // constructor for game-play with every move recorded in a journal in the file at the given
+  // path, to be replayed later
+  // (the journal is closed when the world ends, or when the program exits -- as it does when
+  // the window is closed -- so no move made before then is lost)
+  Board(int rows, int cols, int mines, Path journal) throws IOException {
+    this(rows, cols, mines);
+    new Journal(this.game, journal);
+    Runtime.getRuntime().addShutdownHook(new Thread(this::closeJournal));
   }
 
   // constructor with Random instance given, to be called by user only in testing
   Board(int rows, int cols, int mines, Random rand) {
-    if (mines > rows * cols) {
-      throw new IllegalArgumentException("Cannot have more mines than cells.");
-    }
-    else if (rows < 2) {
-      throw new IllegalArgumentException("Must have at least 2 rows in the grid.");
-    }
-    else if (cols < 2) {
-      throw new IllegalArgumentException("Must have at least 2 columns in the grid.");
-    }
-    else {
-      this.rows = rows;
-      this.cols = cols;
-      this.mines = mines;
-      this.rand = rand;
-      this.visibleCells = 0;
-
-      this.initializeCells(); // add rows * cols cells to this board
-      this.initializeNeighbors(); // set up all cells' neighbor links
-      this.placeMines(); // randomly place mines on this board
-
-      // initialize each cell's mine neighbor count
-      for (ArrayList<Cell> row : this.cells) {
-        for (Cell cell : row) {
-          cell.initMineNeighbors();
-        }
-      }
+    this.game = new Game(rows, cols, mines, rand);
+    new History(this.game); // so z and y undo and redo, as on any other board
+    this.solver = new Solver();
+    this.initView();
+  }
 
-      this.gameOver = false;
-      this.win = false;
-    }
+  // constructor for a board that can be solved from the first click without guessing
+  // (given false, the same as a board with the given Random instance)
+  Board(int rows, int cols, int mines, Random rand, boolean noGuess) {
+    this(rows, cols, mines, rand);
+    this.game.noGuess = noGuess;
   }
 
   // convenience constructor to be used in testing (drawing) intermediate boards
-  // it is assumed that the given cells are initialized and linked
-  Board(ArrayList<ArrayList<Cell>> cells) {
-    this.cells = cells;
-    this.rows = cells.size();
-    this.cols = cells.get(0).size();
-
-    // initialize each cell's mine neighbor count
-    for (ArrayList<Cell> row : this.cells) {
-      for (Cell cell : row) {
-        cell.initMineNeighbors();
-      }
-    }
-
-    // (we don't need other instance variables to test drawing functionality)
+  // it is assumed that the given grid's mines, flags and clicks are already set
+  Board(Grid grid) {
+    this.game = new Game(grid);
+    new History(this.game); // from the grid as given
+    this.solver = new Solver();
+    this.initView();
   }
 
-  // initialize this board's rows * cols cells (MUTATION)
-  // to be called during board initialization (from constructor)
-  void initializeCells() {
-    // maximum capacity of cell rows is the given row count
-    this.cells = new ArrayList<ArrayList<Cell>>(this.rows);
-
-    // initialize all cells
-    for (int i = 0; i < this.rows; i++) {
-
-      // maximum capacity of each cell row is the given col count
-      ArrayList<Cell> row = new ArrayList<Cell>(this.cols);
-
-      // add a cell to each spot in this row
-      for (int j = 0; j < this.cols; j++) {
-        row.add(new Cell());
-      }
-
-      // add this initialized row to the list of rows
-      cells.add(row);
-    }
-  }
-
-  // establish this board's cells' links to each of their neighbors
-  // MUTATION: modify each cell's neighbors list
-  // to be called during board initialization (from constructor)
-  void initializeNeighbors() {
-    /* NEIGHBOR INITIALIZATION
-     * Start in top left; go along row, repeat with next row
-     * Work in mini-grids of 4:
-     * - top left corner cell
-     * - cell on right
-     * - cell below
-     * - cell diagonal
-     * Every time a neighbor is added to this, neighbor adds this to its neighbors
-     * Outer loop: Go down rows -- stop after penultimate row
-     * Inner loop: Go across column -- stop after penultimate column
-     * (account for last row and last column when penultimates are reached)
-     * NOTE: we need at least 2 columns/rows in the grid, so this won't error out
-     */
-
-    // initialize all cells' neighbors
-    for (int i = 0; i < this.rows - 1; i++) {
-      for (int j = 0; j < this.cols - 1; j++) {
-
-        // get mini-grid of cells
-        Cell topLeft = this.get(i, j);
-        Cell topRight = this.get(i, j + 1);
-        Cell bottomLeft = this.get(i + 1, j);
-        Cell bottomRight = this.get(i + 1, j + 1);
-
-        // addNeighbor mutates both the cell which calls it and the cell parameter
-        topLeft.addNeighbor(topRight);
-        topLeft.addNeighbor(bottomLeft);
-        topLeft.addNeighbor(bottomRight);
-        topRight.addNeighbor(bottomLeft);
-
-        // account for the last row when on the second-to-last row
-        if (i == this.rows - 2) {
-          Cell left = this.get(i + 1, j);
-          Cell right = this.get(i + 1, j + 1);
-          left.addNeighbor(right);
-        }
+  // EFFECT: show as much of this board as fits in a window, from its top left corner
+  void initView() {
+    this.viewRows = Math.min(this.game.rows, IConstants.MAX_VIEW_ROWS);
+    this.viewCols = Math.min(this.game.cols, IConstants.MAX_VIEW_COLS);
+    this.topRow = 0;
+    this.leftCol = 0;
+  }
 
-      }
-      // account for the last column at the end of each row
-      Cell top = this.get(i, this.cols - 1);
-      Cell bottom = this.get(i + 1, this.cols - 1);
-      top.addNeighbor(bottom);
+  // EFFECT: move the view the given number of rows down and columns right (or up and left,
+  // if negative), as far as the board's edges allow
+  void pan(int rows, int cols) {
+    int top = Math.max(0, Math.min(this.topRow + rows, this.game.rows - this.viewRows));
+    int left = Math.max(0, Math.min(this.leftCol + cols, this.game.cols - this.viewCols));
+    if (top != this.topRow || left != this.leftCol) {
+      this.topRow = top;
+      this.leftCol = left;
+      this.scene = null; // every cell shown has moved
     }
   }
 
-  // place this board's given number of mines randomly on the board
-  // MUTATION: set some of this board's cells to be mines
-  // to be called during board initialization (from constructor)
-  void placeMines() {
-    // grid of cells to be taken from
-    ArrayList<ArrayList<Cell>> nonMines = this.copyCells();
-
-    // list of mines to add to
-    this.minesList = new ArrayList<Cell>(this.mines);
-
-    // create the given number of mines
-    for (int i = 0; i < this.mines; i++) {
-      int randRow = this.rand.nextInt(nonMines.size()); // generate random row in nonMines
-      int randCol = this.rand.nextInt(nonMines.get(randRow).size()); // random col in row
-
-      Cell mine = nonMines.get(randRow).get(randCol);
-      mine.negMine(); // init false
-
-      this.minesList.add(mine); // update newMines
-      nonMines.get(randRow).remove(randCol); // update nonMines -- this cell is a mine now
-
-      // if the row we took a new mine from is now empty, remove the row from nonMines
-      if (nonMines.get(randRow).isEmpty()) {
-        nonMines.remove(randRow);
-      }
-    }
+  // is the cell at the given index shown in the view?
+  boolean inView(int index) {
+    int row = index / this.game.cols;
+    int col = index - row * this.game.cols;
+    return this.topRow <= row && row < this.topRow + this.viewRows
+        && this.leftCol <= col && col < this.leftCol + this.viewCols;
   }
 
   // get the cell on this board at the given row and column
   Cell get(int row, int column) {
-    return this.cells.get(row).get(column);
-  }
-
-  // return a duplicate list of this board's cells
-  ArrayList<ArrayList<Cell>> copyCells() {
-    // empty cell list to be populated
-    ArrayList<ArrayList<Cell>> cellsCopy = new ArrayList<ArrayList<Cell>>(this.rows);
-
-    // add all the cells in this board to the copy
-    for (int i = 0; i < this.rows; i++) {
-      ArrayList<Cell> row = new ArrayList<Cell>(this.cols);
-      for (int j = 0; j < this.cols; j++) {
-        row.add(this.get(i, j));
-        // add every cell at row i, col j to the copy
-      }
-      cellsCopy.add(row);
-    }
-
-    return cellsCopy;
+    return new Cell(this.game.grid, this.game.grid.index(row, column));
   }
 
   /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
    *                                 WORLD METHODS                                     *
    * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
 
+  // will the next frame be drawn from scratch, rather than over the last one?
+  boolean redrawsAll() {
+    Grid grid = this.game.grid;
+    boolean piledUp = grid.numChanged > 0
+        && this.numPlaced > this.viewRows * this.viewCols * IConstants.MAX_IMAGES_PER_CELL;
+    return this.scene == null || grid.allChanged || piledUp;
+  }
+
   // provide the scene to be rendered for the Minesweeper game (draw cells with
   // grid)
+  // only the cells in the view are drawn, so a frame costs the same on any size of board;
+  // and only the cells which changed since the last frame are drawn, on top of the last
+  // frame; the whole view is drawn from scratch when there is no last frame, when too many
+  // cells changed to keep track of, or when the last frame has piled up too many images
   @Override
   public WorldScene makeScene() {
-    // empty scene to start
-    WorldScene scene = this.getEmptyScene();
-
-    // draw the cells and add them onto the image
-    for (int i = 0; i < this.rows; i++) {
-      int phY = (i * IConstants.CELL_SIDE) + (IConstants.CELL_SIDE / 2);
-      for (int j = 0; j < this.cols; j++) {
-        int phX = (j * IConstants.CELL_SIDE) + (IConstants.CELL_SIDE / 2);
-        Cell c = this.get(i, j);
-        scene.placeImageXY(c.draw(), phX, phY);
+    long start = Metrics.start();
+    boolean redrawn = false; // were any cells drawn onto the scene this frame?
+    Grid grid = this.game.grid;
+
+    if (this.redrawsAll()) {
+      // empty scene to start
+      this.scene = this.getEmptyScene();
+      this.numPlaced = 0;
+      this.endShown = false;
+
+      // draw the cells in view and add them onto the image
+      for (int row = this.topRow; row < this.topRow + this.viewRows; row++) {
+        for (int col = this.leftCol; col < this.leftCol + this.viewCols; col++) {
+          this.drawCell(grid.index(row, col));
+        }
       }
+      redrawn = true;
     }
+    else if (grid.numChanged > 0) {
+      // draw only the changed cells in view over their old images
+      for (int i = 0; i < grid.numChanged; i++) {
+        if (this.inView(grid.changed[i])) {
+          this.drawCell(grid.changed[i]);
+          redrawn = true;
+        }
+      }
+    }
+    grid.clearChanged();
 
     // draw the grid over the cells
-    scene = this.drawGrid(scene);
+    if (redrawn) {
+      this.numPlaced += GridOverlay.of(this.viewRows, this.viewCols).drawOnto(this.scene);
+    }
 
     // if the game is over, display message and restart prompt
-    if (this.gameOver) {
+    if (this.game.gameOver && (redrawn || !this.endShown)) {
 
-      // determine text box dimensions dynamically, based on this board's size
-      int boxLength = Math.max((this.rows * IConstants.CELL_SIDE * 4) / 5,
+      // determine text box dimensions dynamically, based on this view's size
+      int boxLength = Math.max((this.viewRows * IConstants.CELL_SIDE * 4) / 5,
           IConstants.CELL_SIDE * 2);
       int boxHeight = boxLength / 10;
       RectangleImage box = new RectangleImage(boxLength, boxHeight, OutlineMode.SOLID, Color.BLACK);
@@ -238,7 +171,7 @@ class Board extends World {
 
       TextImage text; // the message to be displayed
 
-      if (this.win) {
+      if (this.game.win) {
         text = new TextImage("You won! Press enter to play again :)", textSize, FontStyle.REGULAR,
             Color.GREEN);
       }
@@ -248,77 +181,79 @@ class Board extends World {
       }
 
       OverlayImage textBox = new OverlayImage(text, box);
-      scene.placeImageXY(textBox, this.cols * IConstants.CELL_SIDE / 2,
-          this.rows * IConstants.CELL_SIDE / 2); // place text box in center of board
+      this.scene.placeImageXY(textBox, this.viewCols * IConstants.CELL_SIDE / 2,
+          this.viewRows * IConstants.CELL_SIDE / 2); // place text box in center of view
+      this.numPlaced += 1;
+      this.endShown = true;
     }
 
-    return scene;
+    Metrics.MAKE_SCENE.stop(start);
+    return this.scene;
 
   }
 
-  // draw the grid lines on this board
-  WorldScene drawGrid(WorldScene scene) {
-    // horizontal line length
-    int rightMostX = this.cols * IConstants.CELL_SIDE;
+  // EFFECT: place the image of the cell at the given index (in view) onto this board's scene
+  void drawCell(int index) {
+    long start = Metrics.start();
+    int row = index / this.game.cols - this.topRow;
+    int col = index % this.game.cols - this.leftCol;
+    int phX = (col * IConstants.CELL_SIDE) + (IConstants.CELL_SIDE / 2);
+    int phY = (row * IConstants.CELL_SIDE) + (IConstants.CELL_SIDE / 2);
+    this.scene.placeImageXY(CellSprites.forCell(this.game.grid, index), phX, phY);
+    this.numPlaced += 1;
+    Metrics.DRAW_CELL.stop(start);
+  }
 
-    // add horizontal grid lines (including borders)
-    for (int i = 0; i <= this.rows; i++) {
-      LineImage line = new LineImage(new Posn(rightMostX, 0), Color.BLACK);
-      scene.placeImageXY(line, rightMostX / 2, i * IConstants.CELL_SIDE);
-    }
+  // draw the grid lines on this board's view
+  WorldScene drawGrid(WorldScene scene) {
+    GridOverlay.of(this.viewRows, this.viewCols).drawOnto(scene); // the same as makeScene's
+    return scene;
+  }
 
-    // vertical line length
-    int bottomMostY = this.rows * IConstants.CELL_SIDE;
+  // mouse press listener: remember where a drag starts
+  @Override
+  public void onMousePressed(Posn pos, String buttonName) {
+    this.pressed = pos;
+  }
 
-    // add vertical grid lines (including borders)
-    for (int i = 0; i <= this.cols; i++) {
-      LineImage line = new LineImage(new Posn(0, bottomMostY), Color.BLACK);
-      scene.placeImageXY(line, i * IConstants.CELL_SIDE, bottomMostY / 2);
+  // mouse release listener: a drag of at least a cell pans the view, so that the board
+  // follows the pointer
+  @Override
+  public void onMouseReleased(Posn pos, String buttonName) {
+    if (this.pressed != null) {
+      int rows = (this.pressed.y - pos.y) / IConstants.CELL_SIDE;
+      int cols = (this.pressed.x - pos.x) / IConstants.CELL_SIDE;
+      this.pan(rows, cols);
+      this.pressed = null;
     }
-
-    return scene;
   }
 
   // mouse click listener, to add events to the Minesweeper game
   @Override
   public void onMouseClicked(Posn pos, String buttonName) {
+    long start = Metrics.start();
 
-    // did this click event happen on this board?
-    int maxX = this.cols * IConstants.CELL_SIDE;
-    int maxY = this.rows * IConstants.CELL_SIDE;
+    // did this click event happen on this board's view?
+    int maxX = this.viewCols * IConstants.CELL_SIDE;
+    int maxY = this.viewRows * IConstants.CELL_SIDE;
 
     boolean onBoard = 0 <= pos.x && pos.x <= maxX && 0 <= pos.y && pos.y <= maxY;
 
-    if (!this.gameOver && onBoard) { // track click movement only during gameplay & on board
+    if (onBoard) { // track click movement only on board (the game ignores clicks once over)
 
       Cell clicked = this.getCellPos(pos);
 
-      // left-click events happen only when a cell isn't flagged or clicked
-      boolean validLeftClick = buttonName.equals("LeftButton") && !clicked.isFlagged()
-          && !clicked.isClicked();
-
-      if (validLeftClick) {
-        // left-clicked mine ends game if not on first turn
-        if (clicked.isMine()) {
-          for (Cell mine : this.minesList) {
-            mine.click(); // reveal all the mines on the board
-          }
-          this.endGame(false); // end this game (loss)
-        }
-
-        // left-clicked non-mine triggers flood-fill unless it's the last cell remaining
-        else {
-          this.clickCell(clicked);
-        }
+      if (buttonName.equals("LeftButton")) {
+        this.game.reveal(clicked.index);
       }
-
-      // right-click events happen only when a cell isn't clicked
-      boolean validRightClick = buttonName.equals("RightButton") && !clicked.isClicked();
-
-      if (validRightClick) {
-        clicked.negFlag(); // negate this unclicked cell's flag
+      else if (buttonName.equals("RightButton")) {
+        this.game.flag(clicked.index);
+      }
+      else if (buttonName.equals("MiddleButton")) {
+        this.game.chord(clicked.index);
       }
     }
+    Metrics.MOUSE_CLICK.stop(start);
   }
 
   // determine which cell the user clicked, based on the mouse's position
@@ -328,69 +263,108 @@ class Board extends World {
     int row = 0;
     int col = 0;
 
-    // find row
-    if (pos.x == this.cols * IConstants.CELL_SIDE) {
-      col = this.cols - 1; // edge case -- on right border
+    // find row (counting from the view's left column)
+    if (pos.x == this.viewCols * IConstants.CELL_SIDE) {
+      col = this.leftCol + this.viewCols - 1; // edge case -- on right border
     }
     else {
-      col = pos.x / IConstants.CELL_SIDE; // int div truncates decimal
+      col = this.leftCol + pos.x / IConstants.CELL_SIDE; // int div truncates decimal
     }
 
-    // find column
-    if (pos.y == this.rows * IConstants.CELL_SIDE) {
-      row = this.rows - 1; // edge case -- on bottom border
+    // find column (counting from the view's top row)
+    if (pos.y == this.viewRows * IConstants.CELL_SIDE) {
+      row = this.topRow + this.viewRows - 1; // edge case -- on bottom border
     }
     else { // within y bounds
-      row = pos.y / IConstants.CELL_SIDE; // int div truncates decimal
+      row = this.topRow + pos.y / IConstants.CELL_SIDE; // int div truncates decimal
     }
 
     return this.get(row, col);
   }
 
-  // handle the flood-fill effect when a non-mine is clicked
-  // EFFECT: increment the number of cells that have been clicked,
-  // and end the game if necessary
-  void clickCell(Cell clicked) {
-    this.visibleCells += clicked.floodFill(0);
-    // if all cells are visible, end the game
-    if (this.visibleCells == this.rows * this.cols - this.mines) {
-      this.endGame(true); // end this game (win)
-    }
-  }
-
-  // EFFECT: set this game's gameOver to true and win to the given value
-  void endGame(boolean won) {
-    this.gameOver = true;
-    this.win = won;
-  }
-
-  // handle key events when the game is over (enter => restart)
-  // EFFECT: re-initialize all board data except size and number of mines
+  // handle key events: at any time, the arrow keys pan the view, z => undo a move,
+  // y => redo it, and l => load the saved game; when the game is over, enter => restart
+  // (anything else quits); and during the game, s => solve a step and w => save the game
+  // EFFECT: re-initialize all board data except size and number of mines, play a step, undo
+  // or redo a move, move the view, or replace this board's game with the saved one
   @Override
   public void onKeyEvent(String key) {
-    // only pay attention to key presses when game is over
-    if (this.gameOver) {
+    if (key.equals("up")) {
+      this.pan(-IConstants.PAN_STEP, 0);
+    }
+    else if (key.equals("down")) {
+      this.pan(IConstants.PAN_STEP, 0);
+    }
+    else if (key.equals("left")) {
+      this.pan(0, -IConstants.PAN_STEP);
+    }
+    else if (key.equals("right")) {
+      this.pan(0, IConstants.PAN_STEP);
+    }
+    else if (key.equals("z") || key.equals("y")) {
+      boolean wasOver = this.game.gameOver;
+      if (key.equals("z")) {
+        this.game.undo();
+      }
+      else {
+        this.game.redo();
+      }
+      if (wasOver && !this.game.gameOver) {
+        this.scene = null; // draw the board from scratch, without the game-over message
+      }
+    }
+    else if (key.equals("l")) {
+      try {
+        Game loaded = GameFile.load(SAVE_FILE);
+        this.closeJournal(); // the loaded game's moves can't be replayed from its start
+        this.game = loaded;
+        new History(this.game);
+        this.initView();
+        this.scene = null; // draw the loaded board from scratch
+      }
+      catch (IOException e) {
+        System.err.println("Couldn't load " + SAVE_FILE + ": " + e.getMessage());
+      }
+    }
+    else if (this.game.gameOver) {
       if (key.equals("enter")) {
-        // re-initialize starting board data
-        this.visibleCells = 0;
-        this.initializeCells();
-        this.initializeNeighbors();
-        this.placeMines();
-
-        // initialize each cell's mine neighbor count
-        for (ArrayList<Cell> row : this.cells) {
-          for (Cell cell : row) {
-            cell.initMineNeighbors();
-          }
-        }
-
-        this.gameOver = false;
-        this.win = false;
+        this.game.restart();
+        this.scene = null; // draw the new board from scratch
       }
       else {
         this.endOfWorld(":(");
       }
     }
+    else if (key.equals("s")) {
+      // flag and reveal whatever can be deduced from the board, as the player's clicks would
+      this.solver.step(this.game);
+    }
+    else if (key.equals("w")) {
+      try {
+        GameFile.save(this.game, SAVE_FILE);
+      }
+      catch (IOException e) {
+        System.err.println("Couldn't save " + SAVE_FILE + ": " + e.getMessage());
+      }
+    }
+  }
+
+  // EFFECT: end this world, writing out and closing the game's journal if it has one
+  public void endOfWorld(String message) {
+    this.closeJournal();
+    super.endOfWorld(message);
+  }
+
+  // EFFECT: write out and close the game's journal, if it has one (and it isn't already)
+  void closeJournal() {
+    if (this.game.journal != null) {
+      try {
+        this.game.journal.close();
+      }
+      catch (IOException e) {
+        System.err.println("Couldn't write the journal: " + e.getMessage());
+      }
+    }
   }
 
 }
@@ -400,143 +374,255 @@ class Board extends World {
  * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
 
 // to represent a cell in the Minesweeper board
+// (a lightweight view of one index of a grid; the cell's state lives in the grid)
 class Cell {
-  boolean mine;
-  boolean flagged;
-  boolean clicked;
-  ArrayList<Cell> neighbors;
-  HashMap<Integer, Color> colors; // ref. lecture 26
-  int numMineNeighbors;
+  Grid grid;
+  int index;
 
+  // convenience constructor for a lone cell, with no neighbors
   Cell() {
-    this.mine = false;
-    this.flagged = false;
-    this.clicked = false;
-    this.neighbors = new ArrayList<Cell>(8); // a cell can have at most 8 neighbors
-    this.initializeColors();
-  }
-
-  // initialize the integer-color HashMap to be used in setting neighbor text
-  // colors when drawing this cell (MUTATION)
-  // to be called during instantiation
-  void initializeColors() {
-    colors = new HashMap<Integer, Color>(8);
-    colors.put(1, Color.BLUE);
-    colors.put(2, Color.GREEN);
-    colors.put(3, Color.RED);
-    colors.put(4, new Color(102, 0, 153)); // purple
-    colors.put(5, new Color(153, 0, 0)); // maroon
-    colors.put(6, new Color(64, 224, 208)); // turquoise
-    colors.put(7, Color.BLACK);
-    colors.put(8, Color.LIGHT_GRAY);
+    this(new Grid(1, 1), 0);
+  }
+
+  Cell(Grid grid, int index) {
+    this.grid = grid;
+    this.index = index;
   }
 
   // set this cell's mine value to true (MUTATION)
   // to be called during randomized mine initialization
   void negMine() {
-    this.mine = !this.mine;
+    this.grid.negMine(this.index);
   }
 
   // negate this cell's flagged value (MUTATION)
   // to be called when this cell is (un)flagged by the user
   void negFlag() {
-    this.flagged = !this.flagged;
+    this.grid.negFlag(this.index);
   }
 
   // set this cell's clicked value to true (MUTATION)
   // to be called when this cell is clicked by the user
   void click() {
-    this.clicked = true;
-  }
-
-  // link this cell to the given cell
-  // MUTATION: modify this cell and given cell's neighbor lists
-  // to be called during cell initialization
-  void addNeighbor(Cell neighbor) {
-    this.neighbors.add(neighbor);
-    neighbor.neighbors.add(this);
+    this.grid.click(this.index);
   }
 
   // is this cell a mine?
   boolean isMine() {
-    return this.mine;
+    return this.grid.isMine(this.index);
   }
 
   // is this cell flagged?
   boolean isFlagged() {
-    return this.flagged;
+    return this.grid.isFlagged(this.index);
   }
 
   // is this cell clicked?
   boolean isClicked() {
-    return this.clicked;
+    return this.grid.isClicked(this.index);
   }
 
-  // EFFECT: set this cell's initial count of mine neighbors
-  void initMineNeighbors() {
-    this.numMineNeighbors = this.countMineNeighbors();
+  // what is this cell's (cached) count of mine neighbors?
+  int numMineNeighbors() {
+    return this.grid.mineNeighbors[this.index];
   }
 
   // how many of this cell's neighbors are mines?
-  // (iterate through this cell's neighbors, count mines)
-  // to be called when displaying non-mines
+  // (counted from scratch; numMineNeighbors() gives the same answer without counting)
   int countMineNeighbors() {
-    int numMines = 0;
-    for (Cell c : this.neighbors) {
-      numMines += c.isMine() ? 1 : 0;
-    }
-    return numMines;
+    return this.grid.countMineNeighbors(this.index);
   }
 
   // return the image representation of this cell
+  // (shared with every other cell that looks the same -- don't mutate it)
   WorldImage draw() {
+    return CellSprites.forCell(this.grid, this.index);
+  }
 
-    RectangleImage cell = new RectangleImage(IConstants.CELL_SIDE, IConstants.CELL_SIDE,
-        OutlineMode.SOLID, Color.LIGHT_GRAY); // default cell
+  // flood-fill the board from this cell; return the num of newly clicked cells
+  // (added to the given count)
+  int floodFill(int numClicked) {
+    return numClicked + this.grid.floodFill(this.index);
+  }
+}
 
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                      SPRITES                                      *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent the images of the 12 ways a cell can look, built once per cell size and
+// shared by every cell, so that drawing a cell doesn't create any images
+class CellSprites {
+  // sprite numbers 0-8 are clicked non-mines with that many mine neighbors
+  static final int HIDDEN = 9;
+  static final int FLAGGED = 10;
+  static final int MINE = 11;
+
+  // text colors for each count of mine neighbors, ref. lecture 26
+  static final Color[] COLORS = {
+      null, // 0 mine neighbors => no text
+      Color.BLUE,
+      Color.GREEN,
+      Color.RED,
+      new Color(102, 0, 153), // purple
+      new Color(153, 0, 0), // maroon
+      new Color(64, 224, 208), // turquoise
+      Color.BLACK,
+      Color.LIGHT_GRAY };
+
+  // each cell size's sprites, indexed by sprite number
+  static final HashMap<Integer, WorldImage[]> CACHE = new HashMap<Integer, WorldImage[]>();
+
+  // get the sprite of the given number, for cells of the given side length
+  static WorldImage get(int side, int sprite) {
+    WorldImage[] sprites = CACHE.get(side);
+    if (sprites == null) {
+      sprites = build(side);
+      CACHE.put(side, sprites);
+    }
+    return sprites[sprite];
+  }
+
+  // get the sprite of the cell at the given index of the given grid
+  static WorldImage forCell(Grid grid, int index) {
+    return get(IConstants.CELL_SIDE, spriteOf(grid, index));
+  }
+
+  // which sprite shows the cell at the given index of the given grid?
+  static int spriteOf(Grid grid, int index) {
     // if the cell is flagged, it can't be clicked
-    if (this.flagged) {
-      return new OverlayImage(new EquilateralTriangleImage(13.0, OutlineMode.SOLID, Color.ORANGE),
-          cell);
+    if (grid.isFlagged(index)) {
+      return FLAGGED;
+    }
+    else if (!grid.isClicked(index)) {
+      return HIDDEN;
+    }
+    else if (grid.isMine(index)) {
+      return MINE;
+    }
+    else {
+      return grid.mineNeighbors[index];
+    }
+  }
+
+  // build every sprite for cells of the given side length
+  // (the shapes are sized for 20-pixel cells, and scaled to fit others)
+  static WorldImage[] build(int side) {
+    WorldImage[] sprites = new WorldImage[12];
+
+    RectangleImage hidden = new RectangleImage(side, side, OutlineMode.SOLID, Color.LIGHT_GRAY);
+    RectangleImage clicked = new RectangleImage(side, side, OutlineMode.SOLID, Color.GRAY);
+
+    sprites[HIDDEN] = hidden; // default cell
+    sprites[FLAGGED] = new OverlayImage(
+        new EquilateralTriangleImage(side * 13.0 / 20, OutlineMode.SOLID, Color.ORANGE), hidden);
+
+    // a visible mine is a black circle
+    sprites[MINE] = new OverlayImage(new CircleImage(side * 7 / 20, OutlineMode.SOLID,
+        Color.BLACK), clicked);
+
+    // a visible non-mine shows the num of neighbors it has, or is just a darker-colored
+    // cell if it has no neighbors
+    sprites[0] = clicked;
+    for (int i = 1; i <= 8; i++) {
+      sprites[i] = new OverlayImage(new TextImage(Integer.toString(i), side * 16 / 20,
+          FontStyle.BOLD, COLORS[i]), clicked);
     }
+    return sprites;
+  }
+}
 
-    // is this cell's content visible?
-    if (this.clicked) {
-      cell.color = Color.GRAY; // change the color of this cell to a darker gray
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+ *                                    GRID OVERLAY                                   *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+// to represent the grid lines drawn over a board's cells, built once per board size
+// the lines are drawn into a single pixel image, unless the board is too big for that, in which
+// case one shared horizontal line and one shared vertical line are placed at each position
+class GridOverlay {
+  static GridOverlay last; // the overlay for the most recently drawn board size
+
+  int rows;
+  int cols;
+  WorldImage layer; // every grid line (including borders) in one image, or null if too big
+  LineImage horizontal; // one horizontal grid line
+  LineImage vertical; // one vertical grid line
+
+  GridOverlay(int rows, int cols) {
+    this.rows = rows;
+    this.cols = cols;
+
+    int rightMostX = cols * IConstants.CELL_SIDE; // horizontal line length
+    int bottomMostY = rows * IConstants.CELL_SIDE; // vertical line length
+    this.horizontal = new LineImage(new Posn(rightMostX, 0), Color.BLACK);
+    this.vertical = new LineImage(new Posn(0, bottomMostY), Color.BLACK);
+
+    long numPixels = (rightMostX + 1L) * (bottomMostY + 1L);
+    if (numPixels <= IConstants.MAX_OVERLAY_PIXELS) {
+      this.layer = rasterize(rows, cols);
+    }
+  }
 
-      // if this cell is a visible mine, add a black circle
-      if (this.isMine()) {
-        return new OverlayImage(new CircleImage(7, OutlineMode.SOLID, Color.BLACK), cell);
+  // get the overlay for a board of the given size, building it only if the last board drawn
+  // was a different size
+  static GridOverlay of(int rows, int cols) {
+    if (last == null || last.rows != rows || last.cols != cols) {
+      last = new GridOverlay(rows, cols);
+    }
+    return last;
+  }
+
+  // draw the grid lines (including borders) of a board of the given size into one image
+  static WorldImage rasterize(int rows, int cols) {
+    int rightMostX = cols * IConstants.CELL_SIDE;
+    int bottomMostY = rows * IConstants.CELL_SIDE;
+    ComputedPixelImage layer = new ComputedPixelImage(rightMostX + 1, bottomMostY + 1);
+
+    // horizontal grid lines
+    for (int y = 0; y <= bottomMostY; y += IConstants.CELL_SIDE) {
+      for (int x = 0; x <= rightMostX; x++) {
+        layer.setPixel(x, y, Color.BLACK);
       }
+    }
 
-      // if this cell is a visible non-mine, show the num of neighbors it has
-      // or just a darker-colored cell if it has no neighbors
-      if (this.numMineNeighbors > 0) {
-        return new OverlayImage(new TextImage(Integer.toString(this.numMineNeighbors), 16,
-            FontStyle.BOLD, this.colors.get(this.numMineNeighbors)), cell);
+    // vertical grid lines
+    for (int x = 0; x <= rightMostX; x += IConstants.CELL_SIDE) {
+      for (int y = 0; y <= bottomMostY; y++) {
+        layer.setPixel(x, y, Color.BLACK);
       }
     }
-    return cell; // return default cell drawing
+    return layer;
   }
 
-  // flood-fill the board from this cell; return the num of newly clicked cells
-  int floodFill(int numClicked) {
-    if (!this.isClicked() && !this.isFlagged() && !this.isMine()) { // can't reveal a flagged cell
-      this.click();
-      numClicked += 1;
-      // if this cell has cell has no mine neighbors
-      if (this.countMineNeighbors() == 0) {
-        // flood fill each of its neighbors
-        for (Cell c : this.neighbors) {
-          numClicked += c.floodFill(0);
-        }
-      }
+  // EFFECT: place the grid lines onto the given scene; return the num of images placed
+  int drawOnto(WorldScene scene) {
+    int rightMostX = this.cols * IConstants.CELL_SIDE;
+    int bottomMostY = this.rows * IConstants.CELL_SIDE;
+
+    if (this.layer != null) {
+      scene.placeImageXY(this.layer, rightMostX / 2, bottomMostY / 2);
+      return 1;
     }
-    return numClicked;
+
+    // add horizontal grid lines (including borders)
+    for (int i = 0; i <= this.rows; i++) {
+      scene.placeImageXY(this.horizontal, rightMostX / 2, i * IConstants.CELL_SIDE);
+    }
+
+    // add vertical grid lines (including borders)
+    for (int i = 0; i <= this.cols; i++) {
+      scene.placeImageXY(this.vertical, i * IConstants.CELL_SIDE, bottomMostY / 2);
+    }
+    return this.rows + this.cols + 2;
   }
 }
 
 // to represent constants for the Minesweeper game
 interface IConstants {
   int CELL_SIDE = 20;
-}
\ No newline at end of file
+  int MAX_IMAGES_PER_CELL = 3; // a scene with more images than this per cell is redrawn
+  int MAX_OVERLAY_PIXELS = 1 << 22; // biggest grid overlay drawn as a single image (16 MB)
+  int MAX_VIEW_ROWS = 30; // most rows of cells shown at once (larger boards are panned)
+  int MAX_VIEW_COLS = 50; // most columns of cells shown at once
+  int PAN_STEP = 5; // cells the view moves per arrow key press
+}
@@ -1,5 +1,16 @@
 import java.awt.Color;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Random;
@@ -44,28 +55,16 @@ class MinesweeperTests {
     this.mineFlaggedUnclicked = new Cell();
     this.mineFlaggedUnclicked.negMine();
     this.mineFlaggedUnclicked.negFlag();
-    
-    this.cellUnflaggedUnclicked.initMineNeighbors();
-    this.cellUnflaggedClicked.initMineNeighbors();
-    this.cellFlaggedUnclicked.initMineNeighbors();
-
-    this.mineUnflaggedUnclicked.initMineNeighbors();
-    this.mineUnflaggedClicked.initMineNeighbors();
-    this.mineFlaggedUnclicked.initMineNeighbors();
   }
 
-  // test the initializeColors method for the Cell class
-  // purpose: insert 8 int-color pairs into the colors HashMap
-  void testInitializeColors(Tester t) {
-    // initializeColors is called in the constructor
-    this.initCellConditions();
-
-    t.checkExpect(this.cellUnflaggedUnclicked.colors.size(), 8);
-    t.checkExpect(this.cellUnflaggedUnclicked.colors.get(1), Color.BLUE);
-    t.checkExpect(this.cellUnflaggedUnclicked.colors.get(3), Color.RED);
-    t.checkExpect(this.cellUnflaggedUnclicked.colors.get(0), null);
-    t.checkExpect(this.cellUnflaggedUnclicked.colors.containsKey(2), true);
-    t.checkExpect(this.cellUnflaggedUnclicked.colors.containsKey(9), false);
+  // test the shared text colors of the CellSprites class
+  // purpose: one color for each count of mine neighbors from 1 to 8
+  void testSpriteColors(Tester t) {
+    t.checkExpect(CellSprites.COLORS.length, 9);
+    t.checkExpect(CellSprites.COLORS[1], Color.BLUE);
+    t.checkExpect(CellSprites.COLORS[3], Color.RED);
+    t.checkExpect(CellSprites.COLORS[0], null);
+    t.checkExpect(CellSprites.COLORS[8], Color.LIGHT_GRAY);
   }
 
   // test the negMine method for the Cell class
@@ -74,11 +73,11 @@ class MinesweeperTests {
     // negMine is called in the constructor
     this.initCellConditions();
 
-    t.checkExpect(this.mineFlaggedUnclicked.mine, true);
-    t.checkExpect(this.mineUnflaggedClicked.mine, true);
-    t.checkExpect(this.cellUnflaggedUnclicked.mine, false); // default cell
+    t.checkExpect(this.mineFlaggedUnclicked.isMine(), true);
+    t.checkExpect(this.mineUnflaggedClicked.isMine(), true);
+    t.checkExpect(this.cellUnflaggedUnclicked.isMine(), false); // default cell
     this.cellUnflaggedUnclicked.negMine();
-    t.checkExpect(this.cellUnflaggedUnclicked.mine, true); // now a mine
+    t.checkExpect(this.cellUnflaggedUnclicked.isMine(), true); // now a mine
   }
 
   // test the negFlag method for the Cell class
@@ -86,11 +85,11 @@ class MinesweeperTests {
   void testNegFlag(Tester t) {
     this.initCellConditions();
 
-    t.checkExpect(this.cellUnflaggedUnclicked.flagged, false); // default cell
-    t.checkExpect(this.mineUnflaggedClicked.flagged, false);
-    t.checkExpect(this.mineFlaggedUnclicked.flagged, true);
+    t.checkExpect(this.cellUnflaggedUnclicked.isFlagged(), false); // default cell
+    t.checkExpect(this.mineUnflaggedClicked.isFlagged(), false);
+    t.checkExpect(this.mineFlaggedUnclicked.isFlagged(), true);
     this.mineFlaggedUnclicked.negFlag();
-    t.checkExpect(this.mineFlaggedUnclicked.flagged, false);
+    t.checkExpect(this.mineFlaggedUnclicked.isFlagged(), false);
   }
 
   // test the click method for the Cell class
@@ -98,97 +97,89 @@ class MinesweeperTests {
   void testClick(Tester t) {
     this.initCellConditions();
 
-    t.checkExpect(this.cellUnflaggedUnclicked.clicked, false); // default cell
-    t.checkExpect(this.mineUnflaggedClicked.clicked, true);
-    t.checkExpect(this.cellUnflaggedClicked.clicked, true);
-    t.checkExpect(this.mineFlaggedUnclicked.clicked, false);
+    t.checkExpect(this.cellUnflaggedUnclicked.isClicked(), false); // default cell
+    t.checkExpect(this.mineUnflaggedClicked.isClicked(), true);
+    t.checkExpect(this.cellUnflaggedClicked.isClicked(), true);
+    t.checkExpect(this.mineFlaggedUnclicked.isClicked(), false);
     this.mineFlaggedUnclicked.click();
-    t.checkExpect(this.mineFlaggedUnclicked.clicked, true);
-  }
-
-  // test the addNeighbor method for the Cell class
-  // purpose: establish two-way links between two cells
-  void testAddNeighbor(Tester t) {
-    this.initCellConditions();
-
-    t.checkExpect(this.mineFlaggedUnclicked.neighbors.size(), 0);
-    t.checkExpect(this.mineFlaggedUnclicked.neighbors, new ArrayList<Cell>(8));
-
-    this.mineFlaggedUnclicked.addNeighbor(this.cellFlaggedUnclicked);
-    t.checkExpect(this.mineFlaggedUnclicked.neighbors.size(), 1);
-    t.checkExpect(this.mineFlaggedUnclicked.neighbors.get(0), this.cellFlaggedUnclicked);
-    t.checkExpect(this.cellFlaggedUnclicked.neighbors.size(), 1);
-    t.checkExpect(this.cellFlaggedUnclicked.neighbors.get(0), this.mineFlaggedUnclicked);
-
-    this.mineFlaggedUnclicked.addNeighbor(this.cellUnflaggedClicked);
-    t.checkExpect(this.mineFlaggedUnclicked.neighbors.size(), 2);
-    t.checkExpect(this.mineFlaggedUnclicked.neighbors.get(1), this.cellUnflaggedClicked);
-    t.checkExpect(this.cellUnflaggedClicked.neighbors.size(), 1);
-    t.checkExpect(this.cellUnflaggedClicked.neighbors.get(0), this.mineFlaggedUnclicked);
+    t.checkExpect(this.mineFlaggedUnclicked.isClicked(), true);
   }
 
   // test the isMine method for the Cell class
   // purpose: return cell's mine boolean
   void testIsMine(Tester t) {
     this.initCellConditions();
-    t.checkExpect(this.cellFlaggedUnclicked.isMine(), this.cellFlaggedUnclicked.mine);
-    t.checkExpect(this.mineFlaggedUnclicked.isMine(), this.mineFlaggedUnclicked.mine);
+    t.checkExpect(this.cellFlaggedUnclicked.isMine(), false);
+    t.checkExpect(this.mineFlaggedUnclicked.isMine(), true);
   }
 
   // test the isFlagged method for the Cell class
   // purpose: return cell's flagged boolean
   void testIsFlagged(Tester t) {
     this.initCellConditions();
-    t.checkExpect(this.cellFlaggedUnclicked.isFlagged(), this.cellFlaggedUnclicked.flagged);
-    t.checkExpect(this.mineFlaggedUnclicked.isFlagged(), this.mineFlaggedUnclicked.flagged);
+    t.checkExpect(this.cellFlaggedUnclicked.isFlagged(), true);
+    t.checkExpect(this.cellUnflaggedClicked.isFlagged(), false);
   }
 
   // test the isClicked method for the Cell class
   // purpose: return cell's clicked boolean
   void testIsClicked(Tester t) {
     this.initCellConditions();
-    t.checkExpect(this.cellFlaggedUnclicked.isClicked(), this.cellFlaggedUnclicked.clicked);
-    t.checkExpect(this.cellUnflaggedClicked.isClicked(), this.cellUnflaggedClicked.clicked);
+    t.checkExpect(this.cellFlaggedUnclicked.isClicked(), false);
+    t.checkExpect(this.cellUnflaggedClicked.isClicked(), true);
+  }
+
+  Grid line; // a 1x3 grid of cells: left <-> mid <-> right
+  Cell left;
+  Cell mid;
+  Cell right;
+
+  // reset the 1x3 grid of neighboring cells
+  void initLineConditions() {
+    this.line = new Grid(1, 3);
+    this.left = new Cell(this.line, 0);
+    this.mid = new Cell(this.line, 1);
+    this.right = new Cell(this.line, 2);
   }
 
   // test the countMineNeighbors method for the Cell class
-  // purpose: iterate through neighbors list, count mines
+  // purpose: look up neighbors in the grid, count mines
   void testCountMineNeighbors(Tester t) {
     this.initCellConditions();
-
-    this.mineFlaggedUnclicked.addNeighbor(this.cellFlaggedUnclicked);
-    this.mineFlaggedUnclicked.addNeighbor(this.cellUnflaggedClicked);
-    t.checkExpect(this.mineFlaggedUnclicked.countMineNeighbors(), 0);
-    t.checkExpect(this.cellFlaggedUnclicked.countMineNeighbors(), 1);
-    t.checkExpect(this.cellUnflaggedClicked.countMineNeighbors(), 1);
-
-    this.cellUnflaggedUnclicked.addNeighbor(this.mineUnflaggedClicked);
-    this.cellUnflaggedUnclicked.addNeighbor(this.mineUnflaggedUnclicked);
-    t.checkExpect(this.cellUnflaggedUnclicked.countMineNeighbors(), 2);
+    t.checkExpect(this.mineFlaggedUnclicked.countMineNeighbors(), 0); // lone cell
+
+    this.initLineConditions();
+    this.mid.negMine();
+    t.checkExpect(this.mid.countMineNeighbors(), 0);
+    t.checkExpect(this.left.countMineNeighbors(), 1);
+    t.checkExpect(this.right.countMineNeighbors(), 1);
+
+    this.mid.negMine();
+    this.left.negMine();
+    this.right.negMine();
+    t.checkExpect(this.mid.countMineNeighbors(), 2);
+    t.checkExpect(this.left.countMineNeighbors(), 0); // right isn't left's neighbor
   }
 
-  // test the initMineNeighbors for the Cell data
-  // purpose: call countMineNeighbors() on the given cell
-  void testInitMineNeighbors(Tester t) {
-    this.initCellConditions();
-
-    this.mineFlaggedUnclicked.addNeighbor(this.cellFlaggedUnclicked);
-    this.mineFlaggedUnclicked.addNeighbor(this.cellUnflaggedClicked);
-
-    this.mineFlaggedUnclicked.initMineNeighbors();
-    this.cellFlaggedUnclicked.initMineNeighbors();
-    this.cellUnflaggedClicked.initMineNeighbors();
-
-    t.checkExpect(this.mineFlaggedUnclicked.numMineNeighbors, 0);
-    t.checkExpect(this.cellFlaggedUnclicked.numMineNeighbors, 1);
-    t.checkExpect(this.cellUnflaggedClicked.numMineNeighbors, 1);
-
-    this.cellUnflaggedUnclicked.addNeighbor(this.mineUnflaggedClicked);
-    this.cellUnflaggedUnclicked.addNeighbor(this.mineUnflaggedUnclicked);
-
-    this.cellUnflaggedUnclicked.initMineNeighbors();
-
-    t.checkExpect(this.cellUnflaggedUnclicked.numMineNeighbors, 2);
+  // test the numMineNeighbors method for the Cell class
+  // purpose: read the count of mine neighbors kept up to date by negMine
+  void testNumMineNeighbors(Tester t) {
+    this.initLineConditions();
+    this.mid.negMine();
+
+    t.checkExpect(this.mid.numMineNeighbors(), 0);
+    t.checkExpect(this.left.numMineNeighbors(), 1);
+    t.checkExpect(this.right.numMineNeighbors(), 1);
+
+    this.left.negMine();
+    this.right.negMine();
+    t.checkExpect(this.mid.numMineNeighbors(), 2);
+    t.checkExpect(this.left.numMineNeighbors(), 1);
+
+    this.mid.negMine(); // no longer a mine
+    t.checkExpect(this.left.numMineNeighbors(), 0);
+    t.checkExpect(this.right.numMineNeighbors(), 0);
+    t.checkExpect(this.mid.numMineNeighbors(), 2);
   }
 
   // test the draw method for the Cell class
@@ -226,12 +217,20 @@ class MinesweeperTests {
     t.checkExpect(this.mineFlaggedUnclicked.draw(), drawnFlagged);
     t.checkExpect(this.mineUnflaggedClicked.draw(), drawnClickedMine);
     t.checkExpect(this.cellUnflaggedClicked.draw(), drawnClicked); // 0 mine neighbors
-    this.cellUnflaggedClicked.addNeighbor(this.mineUnflaggedUnclicked); // add mine neighbor
-    this.cellUnflaggedClicked.initMineNeighbors();
-    t.checkExpect(this.cellUnflaggedClicked.draw(), drawnClickedCellN1); // 1 mine neighbor
-    this.cellUnflaggedClicked.addNeighbor(this.mineFlaggedUnclicked); // add another mine neighbor
-    this.cellUnflaggedClicked.initMineNeighbors();
-    t.checkExpect(this.cellUnflaggedClicked.draw(), drawnClickedCellN2); // 2 mine neighbors
+
+    this.initLineConditions();
+    this.mid.click();
+    this.left.negMine(); // add mine neighbor
+    t.checkExpect(this.mid.draw(), drawnClickedCellN1); // 1 mine neighbor
+    this.right.negMine(); // add another mine neighbor
+    t.checkExpect(this.mid.draw(), drawnClickedCellN2); // 2 mine neighbors
+
+    // cells that look the same share one image
+    this.initCellConditions();
+    t.checkExpect(this.cellUnflaggedUnclicked.draw() == this.mineUnflaggedUnclicked.draw(),
+        true);
+    t.checkExpect(this.cellFlaggedUnclicked.draw() == this.mineFlaggedUnclicked.draw(), true);
+    t.checkExpect(this.mid.draw() == this.mid.draw(), true);
   }
 
   // test the floodFill method for the Cell class
@@ -249,11 +248,1450 @@ class MinesweeperTests {
     t.checkExpect(this.cellUnflaggedUnclicked.isClicked(), true);
 
     // flood-fill with neighbors
-    this.initCellConditions(); // set CUU to non-clicked
-    Cell neighbor = new Cell();
-    this.cellUnflaggedUnclicked.addNeighbor(neighbor);
-    t.checkExpect(this.cellUnflaggedUnclicked.neighbors.size(), 1);
-    t.checkExpect(this.cellUnflaggedUnclicked.floodFill(0), 2);
+    this.initLineConditions();
+    t.checkExpect(this.left.floodFill(0), 3);
+    t.checkExpect(this.right.isClicked(), true);
+
+    // flood-fill stops at cells with mine neighbors, and never reveals mines
+    this.initLineConditions();
+    this.right.negMine();
+    t.checkExpect(this.left.floodFill(0), 2);
+    t.checkExpect(this.mid.isClicked(), true);
+    t.checkExpect(this.right.isClicked(), false);
+
+    // flood-fill doesn't reveal flagged cells, or continue past cells with mine neighbors
+    this.initLineConditions();
+    this.left.negFlag();
+    t.checkExpect(this.mid.floodFill(0), 2);
+    t.checkExpect(this.left.isClicked(), false);
+    t.checkExpect(this.right.isClicked(), true);
+
+    this.initLineConditions();
+    this.right.negMine();
+    this.mid.negMine();
+    this.mid.negMine(); // mid placed and removed => counts are back where they were
+    t.checkExpect(this.left.floodFill(0), 2);
+    t.checkExpect(this.right.isClicked(), false);
+  }
+
+  // test the spriteOf method for the CellSprites class
+  // purpose: pick which of the 12 sprites shows a cell
+  void testSpriteOf(Tester t) {
+    this.initCellConditions();
+    t.checkExpect(CellSprites.spriteOf(this.cellUnflaggedUnclicked.grid, 0), CellSprites.HIDDEN);
+    t.checkExpect(CellSprites.spriteOf(this.mineUnflaggedUnclicked.grid, 0), CellSprites.HIDDEN);
+    t.checkExpect(CellSprites.spriteOf(this.cellFlaggedUnclicked.grid, 0), CellSprites.FLAGGED);
+    t.checkExpect(CellSprites.spriteOf(this.mineFlaggedUnclicked.grid, 0), CellSprites.FLAGGED);
+    t.checkExpect(CellSprites.spriteOf(this.mineUnflaggedClicked.grid, 0), CellSprites.MINE);
+    t.checkExpect(CellSprites.spriteOf(this.cellUnflaggedClicked.grid, 0), 0);
+
+    this.initLineConditions();
+    this.left.negMine();
+    this.right.negMine();
+    this.mid.click();
+    t.checkExpect(CellSprites.spriteOf(this.line, 1), 2);
+  }
+
+  // test the get and build methods for the CellSprites class
+  // purpose: build each cell size's sprites once, and hand out the same images after that
+  void testSpriteCache(Tester t) {
+    WorldImage[] sprites = CellSprites.build(IConstants.CELL_SIDE);
+    t.checkExpect(sprites.length, 12);
+    t.checkExpect(CellSprites.get(IConstants.CELL_SIDE, 3), sprites[3]);
+    t.checkExpect(CellSprites.get(IConstants.CELL_SIDE, 3)
+        == CellSprites.get(IConstants.CELL_SIDE, 3), true);
+
+    // other cell sizes get their own, scaled sprites
+    t.checkExpect(CellSprites.get(40, CellSprites.HIDDEN),
+        new RectangleImage(40, 40, OutlineMode.SOLID, Color.LIGHT_GRAY));
+    t.checkExpect(CellSprites.get(40, CellSprites.MINE),
+        new OverlayImage(new CircleImage(14, OutlineMode.SOLID, Color.BLACK),
+            new RectangleImage(40, 40, OutlineMode.SOLID, Color.GRAY)));
+    t.checkExpect(CellSprites.get(40, 1) == CellSprites.get(IConstants.CELL_SIDE, 1), false);
+  }
+
+  /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+   *                                     GRID TESTS                                    *
+   * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+  // test the Grid constructor
+  // purpose: allocate packed state for rows * cols cells
+  void testGridConstructor(Tester t) {
+    Grid grid = new Grid(3, 100);
+    t.checkExpect(grid.size(), 300);
+    t.checkExpect(grid.state.length, 300);
+    t.checkExpect(grid.mineNeighbors.length, 300);
+    t.checkExpect(grid.mineBits.length, 5); // 300 bits fit in 5 longs
+    t.checkExpect(grid.countMines(), 0);
+  }
+
+  // test the index method for the Grid class
+  // purpose: number cells row by row
+  void testIndex(Tester t) {
+    Grid grid = new Grid(3, 4);
+    t.checkExpect(grid.index(0, 0), 0);
+    t.checkExpect(grid.index(0, 3), 3);
+    t.checkExpect(grid.index(1, 0), 4);
+    t.checkExpect(grid.index(2, 3), 11);
+  }
+
+  // test the state methods for the Grid class
+  // purpose: set and read each cell's mine, clicked and flagged bits independently
+  void testGridState(Tester t) {
+    Grid grid = new Grid(10, 10);
+    grid.negMine(70); // mine bits span more than one long
+    grid.negFlag(70);
+    grid.click(3);
+
+    t.checkExpect(grid.isMine(70), true);
+    t.checkExpect(grid.isMine(6), false); // same bit position, different long
+    t.checkExpect(grid.isFlagged(70), true);
+    t.checkExpect(grid.isClicked(70), false);
+    t.checkExpect(grid.isClicked(3), true);
+    t.checkExpect(grid.isFlagged(3), false);
+    t.checkExpect(grid.countMines(), 1);
+
+    grid.negMine(70);
+    grid.negFlag(70);
+    t.checkExpect(grid.isMine(70), false);
+    t.checkExpect(grid.isFlagged(70), false);
+    t.checkExpect(grid.countMines(), 0);
+  }
+
+  // test the neighbors method for the Grid class
+  // purpose: find each cell's neighbors by index arithmetic
+  void testNeighbors(Tester t) {
+    Grid grid = new Grid(3, 3);
+    int[] buffer = new int[8];
+
+    t.checkExpect(grid.neighbors(4, buffer), 8); // center
+    t.checkExpect(buffer, new int[] {0, 1, 2, 3, 5, 6, 7, 8});
+
+    t.checkExpect(grid.neighbors(0, buffer), 3); // corner
+    t.checkExpect(Arrays.copyOf(buffer, 3), new int[] {1, 3, 4});
+
+    t.checkExpect(grid.neighbors(5, buffer), 5); // right edge
+    t.checkExpect(Arrays.copyOf(buffer, 5), new int[] {1, 2, 4, 7, 8});
+
+    t.checkExpect(new Grid(1, 3).neighbors(1, buffer), 2); // single row
+    t.checkExpect(new Grid(1, 1).neighbors(0, buffer), 0); // lone cell
+  }
+
+  // test the countMineNeighbors, recountMineNeighbors and negMine methods for the Grid class
+  // purpose: count the mines around each cell, and keep the counts up to date
+  void testGridMineNeighbors(Tester t) {
+    Grid grid = new Grid(3, 3);
+    grid.negMine(0);
+    grid.negMine(8);
+
+    t.checkExpect(grid.countMineNeighbors(4), 2);
+    t.checkExpect(grid.countMineNeighbors(0), 0); // a mine doesn't count itself
+    t.checkExpect(grid.countMineNeighbors(2), 0);
+    t.checkExpect(grid.countMineNeighbors(7), 1);
+
+    // placing the mines bumped only their neighbors' counts
+    t.checkExpect(grid.mineNeighbors, new byte[] {0, 1, 0, 1, 2, 1, 0, 1, 0});
+
+    grid.negMine(0); // removing a mine lowers its neighbors' counts
+    t.checkExpect(grid.mineNeighbors, new byte[] {0, 0, 0, 0, 1, 1, 0, 1, 0});
+
+    // randomly placed mines leave the same counts as counting from scratch
+    Grid sparse = new Grid(50, 70);
+    sparse.placeMinesSparse(500, new Random(9));
+    Grid dense = new Grid(50, 70);
+    dense.placeMinesDense(1000, new Random(9));
+    boolean allMatch = true;
+    for (int i = 0; i < sparse.size(); i++) {
+      allMatch = allMatch && sparse.mineNeighbors[i] == sparse.countMineNeighbors(i)
+          && dense.mineNeighbors[i] == dense.countMineNeighbors(i);
+    }
+    t.checkExpect(allMatch, true);
+
+    // recounting every cell at once, from the mine bits alone, gives the same counts
+    byte[] expected = dense.mineNeighbors.clone();
+    Arrays.fill(dense.mineNeighbors, (byte) 0);
+    dense.recountMineNeighbors();
+    t.checkExpect(dense.mineNeighbors, expected);
+    Grid corners = new Grid(2, 2);
+    corners.mineBits[0] = 0b1001;
+    corners.recountMineNeighbors();
+    t.checkExpect(corners.mineNeighbors, new byte[] {1, 2, 2, 1});
+
+    // rows 64 cells at a time, and rows of any other width, straddling the mine bits' words
+    boolean recountsMatch = true;
+    for (int cols : new int[] {1, 7, 63, 64, 65, 100, 128, 131}) {
+      Grid grid2 = new Grid(9, cols);
+      grid2.placeMinesDense(grid2.size() / 2, new Random(cols));
+      expected = grid2.mineNeighbors.clone();
+      Arrays.fill(grid2.mineNeighbors, (byte) 9);
+      grid2.recountMineNeighbors();
+      recountsMatch = recountsMatch && Arrays.equals(grid2.mineNeighbors, expected);
+    }
+    t.checkExpect(recountsMatch, true);
+    Grid full = new Grid(3, 70); // 8 mine neighbors fill all 4 bits of a count
+    Arrays.fill(full.mineBits, -1L);
+    full.recountMineNeighbors();
+    t.checkExpect(full.mineNeighbors[full.index(1, 65)], (byte) 8);
+    t.checkExpect(full.mineNeighbors[full.index(0, 69)], (byte) 3);
+
+    // many mines are placed as bits and recounted at once, keeping flags' counts right too
+    Grid bulk = new Grid(20, 20);
+    t.checkExpect(bulk.isBulk(20), false);
+    t.checkExpect(bulk.isBulk(26), true);
+    for (int i = 0; i < 400; i += 7) {
+      bulk.negFlag(i);
+    }
+    bulk.placeMinesSparse(60, new Random(3));
+    boolean bulkMatch = true;
+    for (int i = 0; i < bulk.size(); i++) {
+      bulkMatch = bulkMatch && bulk.mineNeighbors[i] == bulk.countMineNeighbors(i);
+    }
+    t.checkExpect(bulkMatch, true);
+    t.checkExpect(bulk.countMines(), 60);
+    t.checkExpect(this.countersMatch(bulk), true);
+  }
+
+  // test the floodFill method for the Grid class
+  // purpose: reveal huge empty regions without recursing or re-allocating
+  void testGridFloodFill(Tester t) {
+    Grid grid = new Grid(2000, 2000); // would overflow the stack if filled recursively
+    t.checkExpect(grid.floodFill(grid.index(1000, 1000)), 4000000);
+    t.checkExpect(grid.isClicked(0), true);
+    t.checkExpect(grid.isClicked(grid.size() - 1), true);
+    t.checkExpect(grid.flood.size, 0); // nothing left queued
+    t.checkExpect(grid.flood.queue.length < 20000, true); // queue only held the region's edge
+
+    // the same work queue is reused for the next fill
+    int[] queue = grid.flood.queue;
+    t.checkExpect(grid.floodFill(0), 0); // already clicked
+    t.checkExpect(grid.flood.queue, queue);
+
+    // a wall of mines stops the fill
+    Grid walled = new Grid(3, 5);
+    walled.negMine(2);
+    walled.negMine(7);
+    walled.negMine(12);
+    t.checkExpect(walled.floodFill(0), 6); // columns 0 and 1
+    t.checkExpect(walled.isClicked(3), false);
+    t.checkExpect(walled.floodFill(4), 6); // columns 3 and 4
+    t.checkExpect(walled.isClicked(2), false);
+  }
+
+  // test the add and drain methods for the FloodFill class
+  // purpose: keep queued indices in order while the ring buffer wraps around and grows
+  void testFloodFillQueue(Tester t) {
+    FloodFill flood = new FloodFill(new Grid(1, 1));
+    for (int i = 0; i < 60; i++) {
+      flood.add(i);
+    }
+    flood.head = 60; // pretend the first 60 have been taken
+    flood.size = 0;
+    for (int i = 0; i < 70; i++) { // wraps around, then grows
+      flood.add(i);
+    }
+    t.checkExpect(flood.queue.length, 128);
+    t.checkExpect(flood.head, 0);
+    t.checkExpect(flood.queue[0], 0);
+    t.checkExpect(flood.queue[69], 69);
+    t.checkExpect(flood.size, 70);
+  }
+
+  // test the fill method for the FloodFill class, from several cells at once
+  // purpose: reveal from every start through one queue, counting each cell once
+  void testFloodFillBatch(Tester t) {
+    Grid grid = new Grid(1, 5); // 0 0 * 0 0, with the mine in the middle
+    grid.negMine(2);
+    int[] starts = { 0, 4, 1 };
+    t.checkExpect(grid.floodFill(starts, 3), 4); // 1 was revealed from 0 already
+    t.checkExpect(grid.isClicked(2), false);
+    t.checkExpect(grid.floodFill(starts, 2), 0); // nothing left to reveal
+  }
+
+  // test the markChanged and clearChanged methods for the Grid class
+  // purpose: keep track of which cells were clicked or (un)flagged since the last frame
+  void testMarkChanged(Tester t) {
+    Grid grid = new Grid(20, 20);
+    grid.click(5);
+    grid.click(5); // already clicked => not a change
+    grid.negFlag(7);
+    grid.negMine(9); // mines aren't visible until clicked
+    t.checkExpect(grid.numChanged, 2);
+    t.checkExpect(Arrays.copyOf(grid.changed, 2), new int[] {5, 7});
+
+    grid.clearChanged();
+    t.checkExpect(grid.numChanged, 0);
+
+    // up to a quarter of the grid is listed; past that, everything is marked changed
+    for (int i = 0; i < 100; i++) {
+      grid.markChanged(i);
+    }
+    t.checkExpect(grid.numChanged, 100);
+    t.checkExpect(grid.allChanged, false);
+    grid.markChanged(100);
+    t.checkExpect(grid.allChanged, true);
+
+    grid.clearChanged();
+    t.checkExpect(grid.allChanged, false);
+    t.checkExpect(grid.numChanged, 0);
+
+    // and however big the grid, no more than MAX_CHANGED cells are listed
+    Grid big = new Grid(1000, 1000);
+    for (int i = 0; i <= Grid.MAX_CHANGED; i++) {
+      big.markChanged(i);
+    }
+    t.checkExpect(big.allChanged, true);
+    t.checkExpect(big.changed.length, Grid.MAX_CHANGED);
+  }
+
+  // test the revealMines method for the Grid class
+  // purpose: click every mine, and nothing else
+  void testRevealMines(Tester t) {
+    Grid grid = new Grid(10, 10);
+    grid.negMine(1);
+    grid.negMine(64);
+    grid.negMine(99);
+    grid.revealMines();
+
+    t.checkExpect(grid.isClicked(1), true);
+    t.checkExpect(grid.isClicked(64), true);
+    t.checkExpect(grid.isClicked(99), true);
+    t.checkExpect(grid.isClicked(0), false);
+    t.checkExpect(grid.isClicked(65), false);
+  }
+
+  // test the counts of clicks, flags and flagged mines kept by the Grid class, and the count
+  // of the frontier it gives when asked
+  // purpose: keep every count up to date through clicks, flags, undos, copies and loads
+  void testGridCounters(Tester t) {
+    Grid grid = new Grid(3, 3);
+    grid.negMine(0);
+    grid.negFlag(0);
+    grid.negFlag(1);
+    t.checkExpect(grid.numFlagged, 2);
+    t.checkExpect(grid.numFlaggedMines, 1);
+    grid.negMine(1); // a mine placed under a flag (as the first reveal does) counts too
+    t.checkExpect(grid.numFlaggedMines, 2);
+    grid.click(4);
+    t.checkExpect(grid.numClicked, 1);
+    t.checkExpect(grid.countFrontier(), 8);
+    grid.click(8);
+    t.checkExpect(grid.countFrontier(), 7); // 8 left the frontier, and no cell joined it
+
+    // random moves, undone and redone at random, keep the same counts as counting anew
+    Game game = new Game(20, 30, 100, 8L);
+    new History(game);
+    Random rand = new Random(3);
+    boolean allMatch = true;
+    for (int i = 0; i < 400 && !game.gameOver; i++) {
+      int index = rand.nextInt(600);
+      int pick = rand.nextInt(10);
+      if (pick < 4) {
+        game.flag(index);
+      }
+      else if (pick < 6 && (!game.minesPlaced || !game.grid.isMine(index))) {
+        game.reveal(index);
+      }
+      else if (pick < 7) {
+        game.chord(index);
+      }
+      else if (pick < 9) {
+        game.undo();
+      }
+      else {
+        game.redo();
+      }
+      allMatch = allMatch && this.countersMatch(game.grid);
+    }
+    t.checkExpect(allMatch, true);
+    t.checkExpect(this.countersMatch(game.grid.copy()), true);
+    Grid recounted = game.grid.copy();
+    recounted.numClicked = 0;
+    recounted.numFlagged = 0;
+    recounted.recountState();
+    t.checkExpect(recounted.numClicked, game.grid.numClicked);
+    t.checkExpect(recounted.numFlagged, game.grid.numFlagged);
+    t.checkExpect(game.countFlags(), game.grid.numFlagged);
+  }
+
+  // do the given grid's counts of clicks, flags, flagged mines and the frontier match what
+  // counting them from scratch gives?
+  boolean countersMatch(Grid grid) {
+    int clicked = 0;
+    int flagged = 0;
+    int flaggedMines = 0;
+    int frontier = 0;
+    int[] neighbors = new int[8];
+    for (int i = 0; i < grid.size(); i++) {
+      clicked += grid.isClicked(i) ? 1 : 0;
+      flagged += grid.isFlagged(i) ? 1 : 0;
+      flaggedMines += grid.isFlagged(i) && grid.isMine(i) ? 1 : 0;
+      int clickedNeighbors = 0;
+      int numNeighbors = grid.neighbors(i, neighbors);
+      for (int j = 0; j < numNeighbors; j++) {
+        clickedNeighbors += grid.isClicked(neighbors[j]) ? 1 : 0;
+      }
+      frontier += !grid.isClicked(i) && clickedNeighbors > 0 ? 1 : 0;
+    }
+    return grid.numClicked == clicked && grid.numFlagged == flagged
+        && grid.numFlaggedMines == flaggedMines && grid.countFrontier() == frontier;
+  }
+
+  /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+   *                                     GAME TESTS                                    *
+   * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+  Game game3x3; // 3x3 game with a mine in the top left corner
+
+  // reset the 3x3 game
+  void initGameConditions() {
+    Grid grid = new Grid(3, 3);
+    grid.negMine(0);
+    this.game3x3 = new Game(grid);
+  }
+
+  // test the Game constructors
+  // purpose: set up a game without any graphics
+  void testGameConstructor(Tester t) {
+    t.checkConstructorException(new IllegalArgumentException("Cannot have more mines than cells."),
+        "Game", 2, 2, 5);
+    t.checkConstructorException(
+        new IllegalArgumentException("Cannot have a negative number of mines."), "Game", 2, 2, -3);
+    t.checkConstructorException(
+        new IllegalArgumentException("Must have at least 2 rows in the grid."), "Game", 1, 2, 1);
+
+    Game game = new Game(4, 5, 6, new Random(2));
+    t.checkExpect(game.seed, 0L); // the seed of a given Random instance isn't known
+    t.checkExpect(game.moves, 0);
+    t.checkExpect(game.grid.countMines(), 0); // placed on the first reveal
+    t.checkExpect(game.minesPlaced, false);
+    t.checkExpect(game.status(), Game.PLAYING);
+    t.checkExpect(game.visibleCells, 0);
+
+    // a game made from a grid counts the grid's mines
+    Grid grid = new Grid(2, 3);
+    grid.negMine(4);
+    Game fromGrid = new Game(grid);
+    t.checkExpect(fromGrid.mines, 1);
+    t.checkExpect(fromGrid.rows, 2);
+    t.checkExpect(fromGrid.cols, 3);
+
+    // a game given a seed places the same mines as one given a Random instance of that seed
+    Game seeded = new Game(4, 5, 6, 99L);
+    Game given = new Game(4, 5, 6, new Random(99));
+    seeded.reveal(0);
+    given.reveal(0);
+    t.checkExpect(seeded.seed, 99L);
+    t.checkExpect(seeded.grid.mineBits, given.grid.mineBits);
+  }
+
+  // test the reveal method for the Game class
+  // purpose: left-click a cell -- flood-fill a non-mine, lose on a mine
+  void testReveal(Tester t) {
+    this.initGameConditions();
+    this.game3x3.reveal(8); // bottom right corner has no mine neighbors
+    t.checkExpect(this.game3x3.visibleCells, 8);
+    t.checkExpect(this.game3x3.status(), Game.WON);
+
+    this.initGameConditions();
+    this.game3x3.flag(1);
+    this.game3x3.reveal(1); // flagged => nothing happens
+    t.checkExpect(this.game3x3.visibleCells, 0);
+    this.game3x3.reveal(4); // 1 mine neighbor => no flood-fill
+    this.game3x3.reveal(4); // already clicked => nothing happens
+    t.checkExpect(this.game3x3.visibleCells, 1);
+
+    this.game3x3.reveal(0); // mine => lose, and show it
+    t.checkExpect(this.game3x3.status(), Game.LOST);
+    t.checkExpect(this.game3x3.grid.isClicked(0), true);
+
+    this.game3x3.reveal(8); // game over => nothing happens
+    t.checkExpect(this.game3x3.grid.isClicked(8), false);
+    t.checkExpect(this.game3x3.moves, 3); // only the flag and the two reveals that did something
+  }
+
+  // test the flag method for the Game class
+  // purpose: right-click a cell to (un)flag it
+  void testFlag(Tester t) {
+    this.initGameConditions();
+    this.game3x3.flag(0);
+    t.checkExpect(this.game3x3.grid.isFlagged(0), true);
+    t.checkExpect(this.game3x3.minesLeft(), 0);
+    this.game3x3.flag(0);
+    t.checkExpect(this.game3x3.grid.isFlagged(0), false);
+
+    this.game3x3.reveal(4);
+    this.game3x3.flag(4); // clicked cells can't be flagged
+    t.checkExpect(this.game3x3.grid.isFlagged(4), false);
+
+    this.game3x3.endGame(false);
+    this.game3x3.flag(8); // game over => nothing happens
+    t.checkExpect(this.game3x3.grid.isFlagged(8), false);
+  }
+
+  // test the chord method for the Game class
+  // purpose: reveal a number's unflagged neighbors once enough of them are flagged
+  void testChord(Tester t) {
+    this.initGameConditions();
+    this.game3x3.reveal(4);
+    this.game3x3.chord(4); // no flags => nothing happens
+    t.checkExpect(this.game3x3.visibleCells, 1);
+
+    this.game3x3.flag(0);
+    this.game3x3.chord(4); // 1 flag for 1 mine neighbor => reveal the rest
+    t.checkExpect(this.game3x3.visibleCells, 8);
+    t.checkExpect(this.game3x3.status(), Game.WON);
+    // the neighbors' flood fills overlap, but were drained as one batch
+    t.checkExpect(this.game3x3.grid.flood.size, 0);
+
+    // a wrong flag means chording hits the mine
+    this.initGameConditions();
+    this.game3x3.reveal(4);
+    this.game3x3.flag(1);
+    this.game3x3.chord(4);
+    t.checkExpect(this.game3x3.status(), Game.LOST);
+    t.checkExpect(this.game3x3.grid.isClicked(0), true); // every mine is shown
+    t.checkExpect(this.game3x3.grid.isClicked(2), false); // nothing else is revealed
+    t.checkExpect(this.game3x3.visibleCells, 1);
+
+    // unclicked cells and 0-neighbor cells can't be chorded
+    this.initGameConditions();
+    this.game3x3.chord(8);
+    t.checkExpect(this.game3x3.visibleCells, 0);
+  }
+
+  // test the restart method for the Game class
+  // purpose: start a new game of the same size with the same number of mines
+  void testRestart(Tester t) {
+    Game game = new Game(5, 5, 5, new Random(4));
+    game.reveal(0);
+    game.flag(24);
+    game.endGame(false);
+    Grid grid = game.grid;
+    game.restart();
+
+    t.checkExpect(game.grid == grid, true); // cleared in place
+    t.checkExpect(game.status(), Game.PLAYING);
+    t.checkExpect(game.visibleCells, 0);
+    t.checkExpect(game.moves, 0);
+    t.checkExpect(game.grid.countMines(), 0); // placed on the first reveal
+    t.checkExpect(game.countFlags(), 0);
+    t.checkExpect(game.grid.isClicked(0), false);
+    t.checkExpect(game.grid.numClicked, 0);
+    t.checkExpect(game.grid.countFrontier(), 0);
+    t.checkExpect(game.grid.mineNeighbors[1], (byte) 0);
+    game.reveal(12);
+    t.checkExpect(game.grid.countMines(), 5);
+    t.checkExpect(game.status() == Game.LOST, false);
+
+    // a dense board's mines are placed again from scratch in the next game
+    Game dense = new Game(4, 4, 10, new Random(2));
+    dense.reveal(5);
+    t.checkExpect(dense.grid.countMines(), 10);
+    dense.restart();
+    dense.reveal(10);
+    t.checkExpect(dense.grid.countMines(), 10);
+    t.checkExpect(dense.grid.isMine(10), false);
+  }
+
+  // test the countFlags and minesLeft methods for the Game class
+  // purpose: count flags (right or wrong), and the mines that are left to flag
+  void testMinesLeft(Tester t) {
+    this.initGameConditions();
+    t.checkExpect(this.game3x3.countFlags(), 0);
+    t.checkExpect(this.game3x3.minesLeft(), 1);
+    this.game3x3.flag(5);
+    this.game3x3.flag(6);
+    t.checkExpect(this.game3x3.countFlags(), 2);
+    t.checkExpect(this.game3x3.minesLeft(), -1);
+  }
+
+  // test the save and load methods for the GameFile class
+  // purpose: write a game's bits, seed and counters to a file, and read back the same game
+  void testSaveLoad(Tester t) throws IOException {
+    Path path = Files.createTempFile("minesweeper", ".save");
+    Game game = new Game(37, 53, 300, 11L);
+    game.safeOpening = true;
+    game.reveal(1000);
+    game.flag(0);
+    game.flag(1960);
+    GameFile.save(game, path);
+    t.checkExpect(Files.size(path), GameFile.sectionOffset((37 * 53 + 63) / 64, 3)
+        + GameFile.randomBytes(game.rand).length);
+
+    Game loaded = GameFile.load(path);
+    t.checkExpect(loaded.grid.mineBits, game.grid.mineBits);
+    t.checkExpect(loaded.grid.state, game.grid.state);
+    t.checkExpect(loaded.grid.mineNeighbors, game.grid.mineNeighbors);
+    t.checkExpect(this.countersMatch(loaded.grid), true);
+    t.checkExpect(loaded.grid.numFlagged, 2);
+    t.checkExpect(loaded.mines, 300);
+    t.checkExpect(loaded.visibleCells, game.visibleCells);
+    t.checkExpect(loaded.moves, 3);
+    t.checkExpect(loaded.seed, 11L);
+    t.checkExpect(loaded.minesPlaced, true);
+    t.checkExpect(loaded.safeOpening, true);
+    t.checkExpect(loaded.status(), Game.PLAYING);
+
+    // a new game's mines are still to be placed, and a finished game stays finished
+    Game fresh = new Game(3, 4, 5, new Random(1));
+    GameFile.save(fresh, path);
+    Game loadedFresh = GameFile.load(path);
+    t.checkExpect(loadedFresh.mines, 5);
+    t.checkExpect(loadedFresh.minesPlaced, false);
+    loadedFresh.reveal(0);
+    t.checkExpect(loadedFresh.grid.countMines(), 5);
+    this.initGameConditions();
+    this.game3x3.reveal(0);
+    GameFile.save(this.game3x3, path);
+    t.checkExpect(GameFile.load(path).status(), Game.LOST);
+
+    // a loaded game's random source carries on where the saved one's was, so a restart
+    // places the same mines either way
+    GameFile.save(game, path);
+    Game reloaded = GameFile.load(path);
+    game.restart();
+    game.reveal(1000);
+    reloaded.restart();
+    reloaded.reveal(1000);
+    t.checkExpect(reloaded.grid.mineBits, game.grid.mineBits);
+    t.checkExpect(reloaded.rand.nextLong(), game.rand.nextLong());
+
+    // anything else is refused
+    Files.write(path, new byte[GameFile.HEADER_BYTES]);
+    t.checkExpect(this.loadError(path), "Not a Minesweeper save file.");
+    GameFile.save(game, path);
+    Files.write(path, new byte[8], StandardOpenOption.APPEND);
+    t.checkExpect(this.loadError(path), "Corrupt save file: wrong length.");
+    GameFile.save(game, path);
+    byte[] bytes = Files.readAllBytes(path);
+    bytes[bytes.length - 1] = 0; // the end of the random source
+    Files.write(path, bytes);
+    t.checkExpect(this.loadError(path), "Corrupt save file: bad random source.");
+    Files.delete(path);
+  }
+
+  // test the copy method for the Game class
+  // purpose: copy a game so that the copy plays out the same, but on its own
+  void testGameCopy(Tester t) {
+    Game game = new Game(6, 6, 8, 3L);
+    game.reveal(14);
+    game.flag(0);
+    Game copy = game.copy();
+    t.checkExpect(copy.grid.state, game.grid.state);
+    t.checkExpect(copy.grid.mineNeighbors, game.grid.mineNeighbors);
+    t.checkExpect(copy.moves, 2);
+
+    copy.flag(1); // the copy's moves don't change the game
+    t.checkExpect(game.grid.isFlagged(1), false);
+    game.restart(); // and the copied random source places the same mines next time
+    copy.restart();
+    game.reveal(20);
+    copy.reveal(20);
+    t.checkExpect(copy.grid.mineBits, game.grid.mineBits);
+  }
+
+  // test the undo and redo methods for the Game class, and the History class
+  // purpose: take moves back and make them again, keeping only the cells each one changed
+  void testUndoRedo(Tester t) {
+    this.initGameConditions();
+    Game game = this.game3x3;
+    game.undo(); // no history => nothing happens
+    new History(game);
+    t.checkExpect(game.history.canUndo(), false);
+
+    game.flag(1);
+    game.reveal(8); // flood fills 7 cells (all but the mine and the flag)
+    t.checkExpect(game.history.numChanges, 8); // one flag toggle and 7 clicks
+    byte[] afterFill = game.grid.state.clone();
+    game.grid.clearChanged();
+    game.undo();
+    t.checkExpect(game.visibleCells, 0);
+    t.checkExpect(game.moves, 1);
+    t.checkExpect(game.grid.isClicked(8), false);
+    t.checkExpect(game.grid.isFlagged(1), true);
+    t.checkExpect(game.grid.numChanged, 7); // the 7 cells are to be redrawn
+    game.undo();
+    t.checkExpect(game.grid.isFlagged(1), false);
+    t.checkExpect(game.history.canUndo(), false);
+
+    game.redo();
+    game.redo();
+    t.checkExpect(game.grid.state, afterFill);
+    t.checkExpect(game.visibleCells, 7);
+    t.checkExpect(game.moves, 2);
+    game.redo(); // nothing left to redo
+    t.checkExpect(game.moves, 2);
+
+    // a loss is undone along with the mines it showed
+    game.flag(1);
+    game.reveal(0);
+    t.checkExpect(game.status(), Game.LOST);
+    game.undo();
+    t.checkExpect(game.status(), Game.PLAYING);
+    t.checkExpect(game.grid.isClicked(0), false);
+    t.checkExpect(game.grid.isFlagged(1), false); // the move before it is still in effect
+    game.redo();
+    t.checkExpect(game.status(), Game.LOST);
+
+    // a new move drops the moves undone, and a restart forgets them all
+    game.undo();
+    game.undo();
+    game.flag(0);
+    t.checkExpect(game.history.canRedo(), false);
+    t.checkExpect(game.history.numChanges, 9);
+    game.restart();
+    t.checkExpect(game.history.canUndo(), false);
+    t.checkExpect(game.grid.history, game.history);
+  }
+
+  // test the Journal and Replay classes
+  // purpose: record every move of a game, and rebuild the game after any of them
+  void testJournal(Tester t) throws IOException {
+    Path path = Files.createTempFile("minesweeper", ".journal");
+    Game game = new Game(30, 30, 150, 17L);
+    Journal journal = new Journal(game, path);
+    Random rand = new Random(5);
+    IStrategy strategy = new SolverStrategy();
+    while (journal.numRecorded < 2500) {
+      if (game.gameOver) {
+        game.restart();
+      }
+      else if (rand.nextInt(4) == 0) {
+        game.flag(rand.nextInt(900)); // some of which are clicked, and don't count
+      }
+      else if (rand.nextInt(8) == 0) {
+        game.undo(); // not recorded until the game keeps a history
+        new History(game);
+      }
+      else if (rand.nextInt(8) == 0) {
+        game.redo();
+      }
+      else {
+        game.reveal(strategy.nextReveal(game, rand));
+      }
+    }
+    journal.close();
+
+    Replay replay = new Replay(path);
+    t.checkExpect(replay.size(), journal.numRecorded);
+    Game replayed = replay.gameAt(replay.size());
+    t.checkExpect(replayed.grid.mineBits, game.grid.mineBits);
+    t.checkExpect(replayed.grid.state, game.grid.state);
+    t.checkExpect(replayed.visibleCells, game.visibleCells);
+    t.checkExpect(replayed.moves, game.moves);
+    t.checkExpect(replayed.status(), game.status());
+    t.checkExpect(replay.snapshots.size(), 3); // after 0, 1000 and 2000 moves
+
+    // seeking from a snapshot rebuilds the same game as replaying from the start
+    Game fromSnapshot = replay.gameAt(2100);
+    replay.snapshots.subList(1, 3).clear();
+    Game fromStart = replay.gameAt(2100);
+    t.checkExpect(fromSnapshot.grid.state, fromStart.grid.state);
+    t.checkExpect(fromSnapshot.grid.mineBits, fromStart.grid.mineBits);
+    t.checkExpect(replay.gameAt(0).grid.countMines(), 0);
+    t.checkException(new IllegalArgumentException("No move 2501 in this journal."), replay,
+        "gameAt", 2501);
+
+    // a journal must start with a new game with a known seed
+    t.checkConstructorException(
+        new IllegalArgumentException("A journal must start with a new game."), "Journal",
+        game, path);
+    t.checkConstructorException(
+        new IllegalArgumentException("A journal needs a game with a known seed."), "Journal",
+        new Game(3, 3, 1, new Random(1)), path);
+
+    // records are written a batch at a time while the game goes on, and the rest when the
+    // board's world ends
+    Board board = new Board(30, 30, 100, path);
+    t.checkExpect(Files.size(path), 0L);
+    for (int i = 0; i < Journal.FLUSH_RECORDS; i++) {
+      board.game.flag(i);
+    }
+    t.checkExpect(Files.size(path) > Journal.HEADER_BYTES, true);
+    board.game.flag(0);
+    board.endOfWorld("bye");
+    t.checkExpect(new Replay(path).size(), Journal.FLUSH_RECORDS + 1);
+    board.closeJournal(); // closing it again does nothing
+    Files.delete(path);
+  }
+
+  // test the InfiniteGame class
+  // purpose: play on a board with no edges, made and stored a chunk at a time
+  void testInfiniteGame(Tester t) throws IOException {
+    Path path = Files.createTempFile("minesweeper", ".chunks");
+    InfiniteGame small = new InfiniteGame(42, 0.1, 4, path);
+    InfiniteGame large = new InfiniteGame(42, 0.1, 1000, path.resolveSibling(
+        path.getFileName() + ".large"));
+
+    // mines depend only on the seed and the cell, and not on the opening
+    t.checkExpect(small.isMine(0, 0) || small.isMine(1, -1), false);
+    int mines = 0;
+    boolean same = true;
+    for (int x = -150; x < 150; x++) {
+      for (int y = -150; y < 150; y++) {
+        mines += small.isMine(x, y) ? 1 : 0;
+        same = same && small.isMine(x, y) == large.isMine(x, y);
+      }
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(Math.abs(mines / 90000.0 - 0.1) < 0.01, true);
+
+    // the opening's flood fill crosses chunks, and the chunks dropped from memory are stored
+    small.reveal(0, 0);
+    large.reveal(0, 0);
+    t.checkExpect(small.visibleCells > InfiniteGame.CHUNK_SIDE * InfiniteGame.CHUNK_SIDE, true);
+    t.checkExpect(small.visibleCells, large.visibleCells);
+    t.checkExpect(small.chunks.size(), 4);
+    t.checkExpect(small.store.size() > 0, true);
+    t.checkExpect(large.store.size(), 0);
+    boolean sameClicks = true;
+    for (int x = -300; x < 300; x += 3) {
+      for (int y = -300; y < 300; y += 3) {
+        sameClicks = sameClicks && small.isClicked(x, y) == large.isClicked(x, y);
+      }
+    }
+    t.checkExpect(sameClicks, true);
+
+    // flags and mines work as on any board
+    int mineX = 2;
+    while (!small.isMine(mineX, 0) || small.isClicked(mineX, 0)) {
+      mineX += 1;
+    }
+    small.flag(mineX, 0);
+    small.reveal(mineX, 0); // flagged => nothing happens
+    t.checkExpect(small.isFlagged(mineX, 0), true);
+    small.flag(mineX, 0);
+    small.reveal(mineX, 0);
+    t.checkExpect(small.gameOver, true);
+    t.checkExpect(small.isClicked(mineX, 0), true);
+
+    // a flood fill stops at maxFill, and revealing a clicked 0 at its edge carries it on
+    InfiniteGame capped = new InfiniteGame(42, 0.01, 16, path.resolveSibling(
+        path.getFileName() + ".capped"));
+    capped.maxFill = 100;
+    capped.reveal(0, 0);
+    t.checkExpect(capped.visibleCells, 100L);
+    int edgeX = 0;
+    int edgeY = -10;
+    for (int x = -10; x <= 10; x++) {
+      for (int y = -10; y <= 10; y++) {
+        if (capped.isClicked(x, y) && capped.mineNeighbors(x, y) == 0
+            && capped.hasHiddenNeighbor(x, y)) {
+          edgeX = x;
+          edgeY = y;
+        }
+      }
+    }
+    t.checkExpect(capped.isClicked(edgeX, edgeY), true);
+    capped.reveal(edgeX, edgeY);
+    t.checkExpect(capped.visibleCells, 200L);
+    t.checkExpect(capped.moves, 2);
+    capped.reveal(0, 0); // nothing hidden around it any more: not a move
+    t.checkExpect(capped.visibleCells, 200L);
+    t.checkExpect(capped.moves, 2);
+    capped.close();
+    Files.delete(path.resolveSibling(path.getFileName() + ".capped"));
+
+    // a chunk stored with a flag, read back and unflagged, is stored again without it
+    InfiniteGame one = new InfiniteGame(7, 0.1, 1, path.resolveSibling(
+        path.getFileName() + ".one"));
+    int far = 10 * InfiniteGame.CHUNK_SIDE;
+    one.flag(far, far);
+    one.isFlagged(0, 0); // evicts the flagged chunk
+    t.checkExpect(one.store.contains(InfiniteGame.chunkKey(10, 10)), true);
+    t.checkExpect(one.isFlagged(far, far), true); // read back
+    one.flag(far, far);
+    one.isFlagged(0, 0); // evicts it again, with no flags left
+    t.checkExpect(one.isFlagged(far, far), false);
+    one.close();
+    Files.delete(path.resolveSibling(path.getFileName() + ".one"));
+
+    t.checkConstructorException(
+        new IllegalArgumentException("Mine density must be between 0 and 1."), "InfiniteGame",
+        1L, 1.0, 4, path);
+    small.close();
+    large.close();
+    Files.delete(path);
+    Files.delete(path.resolveSibling(path.getFileName() + ".large"));
+  }
+
+  // test the GameServer class
+  // purpose: play a game per connection through the line protocol, and hold up under load
+  void testGameServer(Tester t) throws Exception {
+    GameServer server = new GameServer(new InetSocketAddress("localhost", 0), 2);
+    Thread serving = this.serveInBackground(server);
+
+    InetSocketAddress address = (InetSocketAddress) server.address;
+    Socket socket = new Socket("localhost", address.getPort());
+    PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), "US-ASCII"),
+        true);
+    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+        "US-ASCII"));
+
+    out.println("R 0");
+    t.checkExpect(in.readLine(), "ERR no game yet (send NEW rows cols mines)");
+    out.println("NEW 3 3 1000");
+    t.checkExpect(in.readLine(), "ERR Cannot have more mines than cells.");
+    out.println("NEW 2 2 -3");
+    t.checkExpect(in.readLine(), "ERR Cannot have a negative number of mines.");
+    out.println("NEW 300 300 10");
+    t.checkExpect(in.readLine(), "ERR Cannot have more than 65536 cells.");
+    out.println("NEW 5 5 x");
+    t.checkExpect(in.readLine().startsWith("ERR"), true);
+    out.println("NEW 5 5 3 7");
+    t.checkExpect(in.readLine(), "OK 0 0 0");
+
+    // the server's game plays out just like a local one with the same seed
+    Game game = new Game(5, 5, 3, 7L);
+    game.reveal(12);
+    String reply = "OK " + game.status() + " " + game.visibleCells + " " + game.visibleCells;
+    out.println("R 12");
+    String revealed = in.readLine();
+    t.checkExpect(revealed.startsWith(reply), true);
+    t.checkExpect(revealed.contains(" 12=" + GameServer.symbol(game.grid, 12)), true);
+    out.println("R 12"); // already revealed: nothing changes
+    t.checkExpect(in.readLine(), "OK 0 " + game.visibleCells + " 0");
+    int hidden = 0;
+    while (game.grid.isClicked(hidden)) {
+      hidden += 1;
+    }
+    out.println("F " + hidden);
+    t.checkExpect(in.readLine(), "OK 0 " + game.visibleCells + " 1 " + hidden + "=F");
+    game.flag(hidden);
+    StringBuilder cells = new StringBuilder();
+    for (int i = 0; i < 25; i++) {
+      cells.append(GameServer.symbol(game.grid, i));
+    }
+    out.println("S");
+    t.checkExpect(in.readLine(), "BOARD 0 5 5 " + cells);
+    out.println("R 25");
+    t.checkExpect(in.readLine(), "ERR No cell 25 on this board.");
+    out.println("JUMP 3");
+    t.checkExpect(in.readLine(), "ERR unknown request: JUMP 3");
+
+    // two requests in one write, and one in two writes, are each answered once
+    out.print("R 12\nR 1");
+    out.flush();
+    t.checkExpect(in.readLine(), "OK 0 " + game.visibleCells + " 0");
+    out.println("2");
+    t.checkExpect(in.readLine(), "OK 0 " + game.visibleCells + " 0");
+
+    // a third connection is turned away, and a quit frees a place
+    Socket second = new Socket("localhost", address.getPort());
+    Socket third = new Socket("localhost", address.getPort());
+    t.checkExpect(new BufferedReader(new InputStreamReader(third.getInputStream())).readLine(),
+        "ERR server full");
+    out.println("Q");
+    t.checkExpect(in.readLine(), "BYE");
+    t.checkExpect(in.readLine(), null);
+    socket.close();
+    second.close();
+    third.close();
+    server.close();
+    serving.join();
+
+    // the load generator plays many games at once, without errors
+    GameServer busy = new GameServer(new InetSocketAddress("localhost", 0), 100);
+    Thread busyServing = this.serveInBackground(busy);
+    LoadGenerator generator = new LoadGenerator(busy.address, 50, 50, 9, 9, 10, 5L);
+    generator.run();
+    t.checkExpect(generator.failures, 0);
+    t.checkExpect(generator.errors, 0L);
+    t.checkExpect(generator.moves, 2500L);
+    t.checkExpect(generator.latency.count.get() >= 2500, true);
+    busy.close();
+    busyServing.join();
+
+    // and counts the clients it can't connect, rather than giving up on them all
+    LoadGenerator refused = new LoadGenerator(busy.address, 300, 5, 9, 9, 10, 7L);
+    refused.run();
+    t.checkExpect(refused.failures, 300);
+    t.checkExpect(refused.connecting, 0);
+
+    // and over a Unix domain socket, with flood fills too big to list
+    Path path = Files.createTempDirectory("minesweeper").resolve("games.sock");
+    GameServer local = new GameServer(UnixDomainSocketAddress.of(path), 10);
+    Thread localServing = this.serveInBackground(local);
+    LoadGenerator big = new LoadGenerator(local.address, 10, 20, 200, 200, 10, 6L);
+    big.run();
+    t.checkExpect(big.failures, 0);
+    t.checkExpect(big.errors, 0L);
+    t.checkExpect(big.moves, 200L);
+    local.close();
+    localServing.join();
+    t.checkExpect(Files.exists(path), false);
+    LoadGenerator missing = new LoadGenerator(local.address, 3, 5, 9, 9, 10, 8L);
+    missing.run();
+    t.checkExpect(missing.failures, 3);
+    t.checkExpect(missing.connecting, 0);
+    Files.delete(path.getParent());
+  }
+
+  // a thread serving the given server's games until it's closed (already started)
+  Thread serveInBackground(GameServer server) {
+    Thread serving = new Thread(() -> {
+      try {
+        server.serve();
+      }
+      catch (IOException e) {
+        // closed
+      }
+    });
+    serving.start();
+    return serving;
+  }
+
+  // test the Histogram class and the snapshots of the Metrics class
+  // purpose: count latencies into buckets within about 3% of them, and report percentiles
+  void testHistogram(Tester t) {
+    // values under 32ns are exact, and each larger bucket holds a 32nd of its power of 2
+    t.checkExpect(Histogram.bucket(0), 0);
+    t.checkExpect(Histogram.bucket(31), 31);
+    t.checkExpect(Histogram.bucket(32), 32);
+    t.checkExpect(Histogram.bucket(64), 64);
+    t.checkExpect(Histogram.bucket(65), 64);
+    t.checkExpect(Histogram.highestIn(64), 65L);
+    t.checkExpect(Histogram.bucket(Long.MAX_VALUE), Histogram.NUM_BUCKETS - 1);
+    t.checkExpect(Histogram.highestIn(Histogram.NUM_BUCKETS - 1), Long.MAX_VALUE);
+    boolean inside = true;
+    for (long value = 1; value < 1L << 40; value = value * 3 + 1) {
+      int bucket = Histogram.bucket(value);
+      inside = inside && value <= Histogram.highestIn(bucket)
+          && (bucket == 0 || value > Histogram.highestIn(bucket - 1));
+    }
+    t.checkExpect(inside, true);
+
+    Histogram histogram = new Histogram("test");
+    t.checkExpect(histogram.percentile(50), 0L);
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L); // 1us to 1ms
+    }
+    t.checkExpect(histogram.count.get(), 1000L);
+    t.checkExpect(histogram.mean(), 500500.0);
+    t.checkExpect(Math.abs(histogram.percentile(50) - 500000) < 500000 / 32, true);
+    t.checkExpect(Math.abs(histogram.percentile(99) - 990000) < 990000 / 32, true);
+    t.checkExpect(histogram.percentile(100), 1000000L); // never above the maximum
+    t.checkExpect(histogram.toText().startsWith("test            count=1000"), true);
+    t.checkExpect(histogram.toJson().startsWith("\"test\":{\"count\":1000,\"meanNs\":"),
+        true);
+    histogram.reset();
+    t.checkExpect(histogram.count.get(), 0L);
+    t.checkExpect(histogram.percentile(99), 0L);
+
+    // instrumentation is off in tests, so the timed paths record nothing
+    t.checkExpect(Metrics.ENABLED, false);
+    t.checkExpect(Metrics.start(), 0L);
+    new Game(10, 10, 10, 3L).reveal(0);
+    t.checkExpect(Metrics.FLOOD_FILL.count.get(), 0L);
+    String json = Metrics.snapshotJson();
+    t.checkExpect(json.startsWith("{\"makeScene\":{\"count\":0,"), true);
+    t.checkExpect(json.endsWith("\"maxNs\":0}}"), true);
+    t.checkExpect(Metrics.snapshotText().split("\n").length, Metrics.ALL.length);
+  }
+
+  // test the ChunkStore class
+  // purpose: find any number of stored chunks through an index kept on disk, not in memory
+  void testChunkStore(Tester t) throws IOException {
+    Path path = Files.createTempFile("minesweeper", ".chunks");
+    ChunkStore store = new ChunkStore(path);
+    Chunk chunk = new Chunk(0, 0);
+    int count = 3000; // enough to double the index a few times
+    for (int i = 0; i < count; i++) {
+      chunk.clicked[0] = i;
+      chunk.flagged[63] = -i;
+      store.write(InfiniteGame.chunkKey(i - count / 2, (i * 7) - count), chunk);
+    }
+    chunk.clicked[0] = 12345; // a chunk written again keeps its slot
+    chunk.flagged[63] = -(count / 2);
+    store.write(InfiniteGame.chunkKey(0, (count / 2) * 7 - count), chunk);
+    t.checkExpect(store.size(), count);
+    t.checkExpect(store.capacity, 8192L);
+    t.checkExpect(Files.size(store.indexPath), 8192L * ChunkStore.ENTRY_BYTES);
+    t.checkExpect(Files.size(path), (long) count * ChunkStore.SLOT_BYTES);
+
+    boolean allFound = true;
+    Chunk read = new Chunk(0, 0);
+    for (int i = 0; i < count; i++) {
+      store.read(InfiniteGame.chunkKey(i - count / 2, (i * 7) - count), read);
+      long expected = i == count / 2 ? 12345 : i;
+      allFound = allFound && read.clicked[0] == expected && read.flagged[63] == -i;
+    }
+    t.checkExpect(allFound, true);
+    t.checkExpect(store.contains(InfiniteGame.chunkKey(count, 0)), false);
+    read.clicked[0] = 99;
+    store.read(InfiniteGame.chunkKey(count, 0), read); // never stored: left as it was
+    t.checkExpect(read.clicked[0], 99L);
+
+    Path index = store.indexPath;
+    store.close();
+    t.checkExpect(Files.exists(index), false);
+    Files.delete(path);
+  }
+
+  // the message of the error loading the file at the given path ("" if it loads)
+  String loadError(Path path) {
+    try {
+      GameFile.load(path);
+      return "";
+    }
+    catch (IOException e) {
+      return e.getMessage();
+    }
+  }
+
+  // test the gameSeed method for the Simulator class
+  // purpose: derive each game's seed from the master seed and the game's number alone
+  void testGameSeed(Tester t) {
+    t.checkExpect(Simulator.gameSeed(7, 3), Simulator.gameSeed(7, 3));
+    t.checkExpect(Simulator.gameSeed(7, 3) == Simulator.gameSeed(7, 4), false);
+    t.checkExpect(Simulator.gameSeed(7, 3) == Simulator.gameSeed(8, 3), false);
+  }
+
+  // test the simulate method for the Simulator class
+  // purpose: play every game to its end, the same way on any number of threads
+  void testSimulate(Tester t) {
+    Simulator simulator = new Simulator(9, 9, 10, new RandomStrategy());
+    SimulationReport one = simulator.simulate(200, 42, 1);
+    SimulationReport four = simulator.simulate(200, 42, 4);
+
+    t.checkExpect(one.games, 200);
+    t.checkExpect(one.threads, 1);
+    t.checkExpect(four.threads, 4);
+    t.checkExpect(one.wins, four.wins);
+    t.checkExpect(one.reveals, four.reveals);
+    t.checkExpect(one.cellsRevealed, four.cellsRevealed);
+    t.checkExpect(one.reveals >= 200, true);
+
+    // a board with no mines is won by the first reveal
+    SimulationReport easy = new Simulator(3, 3, 0, new RandomStrategy()).simulate(5, 1, 2);
+    t.checkExpect(easy.wins, 5);
+    t.checkExpect(easy.reveals, 5L);
+    t.checkExpect(easy.cellsRevealed, 45L);
+    t.checkExpect(easy.winRate(), 1.0);
+  }
+
+  // test the nextReveal method for the RandomStrategy class
+  // purpose: choose only hidden, unflagged cells
+  void testRandomStrategy(Tester t) {
+    this.initGameConditions();
+    IStrategy strategy = new RandomStrategy();
+    this.game3x3.flag(0);
+    this.game3x3.grid.click(1);
+    for (int i = 2; i < 8; i++) {
+      this.game3x3.grid.click(i);
+    }
+    // only cell 8 is left, so both the random picks and the scan must find it
+    t.checkExpect(strategy.nextReveal(this.game3x3, new Random(1)), 8);
+    this.game3x3.grid.click(8);
+    t.checkException(new IllegalStateException("No cell left to reveal."), strategy,
+        "nextReveal", this.game3x3, new Random(1));
+  }
+
+  /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+   *                                    SOLVER TESTS                                   *
+   * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+  // a 3x3 grid with one mine, in the middle of the top row:
+  // 0 * 2
+  // 3 4 5
+  // 6 7 8
+  Grid solverGrid() {
+    Grid grid = new Grid(3, 3);
+    grid.negMine(1);
+    return grid;
+  }
+
+  // test the solve method for the Solver class
+  // purpose: deduce safe cells and mines from the visible numbers
+  void testSolve(Tester t) {
+    Solver solver = new Solver();
+    Game game = new Game(this.solverGrid());
+    t.checkExpect(solver.solve(game), 0); // nothing visible => nothing to deduce
+
+    // the bottom two rows are visible: 3 and 4 see {0, 1} and {0, 1, 2} with one mine
+    // apiece, so 2 is safe (and likewise 0, from 5 and 4)
+    game.reveal(7);
+    t.checkExpect(solver.solve(game), 2);
+    t.checkExpect(solver.numMines, 0);
+    t.checkExpect(solver.numSafe, 2);
+    t.checkExpect(solver.safeCells[0], 2);
+    t.checkExpect(solver.safeCells[1], 0);
+
+    // once 0 is visible, it sees only the mine
+    game.reveal(0);
+    t.checkExpect(solver.solve(game), 1);
+    t.checkExpect(solver.numMines, 1);
+    t.checkExpect(solver.mineCells[0], 1);
+    t.checkExpect(solver.numSafe, 0);
+
+    // flags are trusted: with 1 flagged, 4 has no mines left around it, so 2 is safe
+    game.flag(1);
+    t.checkExpect(solver.solve(game), 1);
+    t.checkExpect(solver.safeCells[0], 2);
+  }
+
+  // test the enumerateComponents method for the Solver class
+  // purpose: find what holds in every way of placing mines on the frontier
+  void testEnumerateComponents(Tester t) {
+    Solver solver = new Solver();
+    Game game = new Game(this.solverGrid());
+    game.reveal(7);
+
+    solver.prepare(game);
+    solver.findConstraints();
+    t.checkExpect(solver.numConstraints, 3);
+    solver.enumerateComponents();
+    t.checkExpect(solver.numVars, 3);
+    t.checkExpect(solver.solutions, 1L); // only the mine at 1 satisfies 3, 4 and 5
+    t.checkExpect(solver.numMines, 1);
+    t.checkExpect(solver.mineCells[0], 1);
+    t.checkExpect(solver.numSafe, 2);
+  }
+
+  // test the expand method for the Solver class
+  // purpose: move a 3x3 mask into the 7x7 square around another cell
+  void testExpand(Tester t) {
+    t.checkExpect(Solver.expand(1, 0, 0), 1L << 16); // up-left of the center
+    t.checkExpect(Solver.expand(1, 1, 1), 1L << 24); // the center itself
+    t.checkExpect(Solver.expand(256, 2, 2), 1L << 48); // the far corner
+    t.checkExpect(Solver.expand(1 | 256, 0, 0), (1L << 16) | (1L << 32));
+  }
+
+  // test the step and solveAll methods for the Solver class
+  // purpose: play out deductions through the same reveal and flag paths as clicks
+  void testSolveAll(Tester t) {
+    Solver solver = new Solver();
+    Game game = new Game(this.solverGrid());
+    game.reveal(7);
+    t.checkExpect(solver.step(game), 2);
+    t.checkExpect(game.grid.isClicked(0), true);
+    t.checkExpect(game.grid.isClicked(2), true);
+    t.checkExpect(game.status(), Game.WON);
+
+    // an expert board, with a safe opening: the solver never loses, and never flags anything
+    // but mines
+    game = new Game(16, 30, 99, new Random(3));
+    game.safeOpening = true;
+    game.reveal(100);
+    t.checkExpect(solver.solveAll(game) > 0, true);
+    t.checkExpect(game.status() == Game.LOST, false);
+    boolean flagsRight = true;
+    for (int i = 0; i < game.grid.size(); i++) {
+      flagsRight = flagsRight && (!game.grid.isFlagged(i) || game.grid.isMine(i));
+    }
+    t.checkExpect(flagsRight, true);
+  }
+
+  // test the nextReveal method for the SolverStrategy class
+  // purpose: reveal deduced safe cells before guessing, and win more than guessing alone
+  void testSolverStrategy(Tester t) {
+    Game game = new Game(this.solverGrid());
+    game.reveal(7);
+    t.checkExpect(new SolverStrategy().nextReveal(game, new Random(1)), 2);
+
+    SimulationReport guessing =
+        new Simulator(9, 9, 10, new RandomStrategy()).simulate(200, 42, 2);
+    SimulationReport solving =
+        new Simulator(9, 9, 10, new SolverStrategy()).simulate(200, 42, 2);
+    t.checkExpect(solving.wins > guessing.wins, true);
+    t.checkExpect(new Simulator(9, 9, 10, new SolverStrategy()).simulate(200, 42, 1).wins,
+        solving.wins);
+  }
+
+  // test the place method for the NoGuessGenerator class
+  // purpose: lay out mines so the game can be won from the first reveal without guessing
+  void testNoGuessPlace(Tester t) {
+    Game game = new Game(16, 30, 99, new Random(7));
+    game.noGuess = true;
+    game.reveal(200);
+    t.checkExpect(game.grid.countMines(), 99);
+    t.checkExpect(game.grid.mineNeighbors[200], (byte) 0); // a safe opening
+    new Solver().solveAll(game);
+    t.checkExpect(game.status(), Game.WON);
+
+    // the same seed and first reveal give the same board
+    Board board1 = new Board(16, 30, 99, new Random(7), true);
+    Board board2 = new Board(16, 30, 99, new Random(7), true);
+    board1.game.reveal(200);
+    board2.game.reveal(200);
+    t.checkExpect(board1.game.grid.mineBits, board2.game.grid.mineBits);
+    t.checkExpect(new Board(9, 9, 10, new Random(7), false).game.noGuess, false);
+  }
+
+  // test the search method for the NoGuessGenerator class
+  // purpose: find the first solvable candidate, whatever the number of workers
+  void testNoGuessSearch(Tester t) {
+    int one = new NoGuessGenerator(16, 30, 99, 200, 11).search(1);
+    int four = new NoGuessGenerator(16, 30, 99, 200, 11).search(4);
+    t.checkExpect(one >= 0, true);
+    t.checkExpect(four, one);
+
+    // every candidate before the one found needs a guess
+    NoGuessGenerator generator = new NoGuessGenerator(16, 30, 99, 200, 11);
+    boolean earlierNeedGuesses = true;
+    for (int i = 0; i < one; i++) {
+      earlierNeedGuesses = earlierNeedGuesses && !generator.solvable(i, new Solver());
+    }
+    t.checkExpect(earlierNeedGuesses, true);
+    t.checkExpect(generator.solvable(one, new Solver()), true);
+
+    // no room for a layout that can be solved: nothing is found
+    t.checkExpect(new NoGuessGenerator(3, 3, 8, 4, 1).search(2) >= 0, true); // 8 mines, 1 cell
+    t.checkExpect(new NoGuessGenerator(4, 4, 14, 0, 1).search(2), -1);
+  }
+
+  // the exact chance that each cell of the given game is a mine, by trying every way to
+  // place the mines left among its hidden, unflagged cells (for small boards only)
+  double[] bruteForceProbabilities(Game game) {
+    Grid g = game.grid;
+    int[] hidden = new int[g.size()];
+    int numHidden = 0;
+    int minesLeft = game.mines;
+    for (int i = 0; i < g.size(); i++) {
+      if (g.isFlagged(i)) {
+        minesLeft -= 1;
+      }
+      else if (!g.isClicked(i)) {
+        hidden[numHidden] = i;
+        numHidden += 1;
+      }
+    }
+
+    double[] mines = new double[g.size()];
+    double solutions = 0;
+    int[] neighbors = new int[8];
+    for (int placed = 0; placed < 1 << numHidden; placed++) {
+      if (Integer.bitCount(placed) != minesLeft) {
+        continue;
+      }
+      boolean[] mine = new boolean[g.size()];
+      for (int h = 0; h < numHidden; h++) {
+        mine[hidden[h]] = (placed & (1 << h)) != 0;
+      }
+      for (int i = 0; i < g.size(); i++) {
+        mine[i] = mine[i] || g.isFlagged(i);
+      }
+
+      boolean fits = true;
+      for (int i = 0; i < g.size() && fits; i++) {
+        if (g.isClicked(i)) {
+          int count = 0;
+          for (int n = g.neighbors(i, neighbors) - 1; n >= 0; n--) {
+            count += mine[neighbors[n]] ? 1 : 0;
+          }
+          fits = count == g.mineNeighbors[i];
+        }
+      }
+      if (fits) {
+        solutions += 1;
+        for (int i = 0; i < g.size(); i++) {
+          mines[i] += mine[i] ? 1 : 0;
+        }
+      }
+    }
+    for (int i = 0; i < g.size(); i++) {
+      mines[i] /= solutions;
+    }
+    return mines;
+  }
+
+  // test the compute method for the MineProbabilities class
+  // purpose: work out each cell's exact chance of being a mine
+  void testComputeProbabilities(Tester t) {
+    MineProbabilities engine = new MineProbabilities();
+
+    // only the mine at 1 fits the bottom two rows
+    Game game = new Game(this.solverGrid());
+    game.reveal(7);
+    double[] p = engine.compute(game);
+    t.checkInexact(p[0], 0.0, 1e-9);
+    t.checkInexact(p[1], 1.0, 1e-9);
+    t.checkInexact(p[2], 0.0, 1e-9);
+    t.checkInexact(p[7], 0.0, 1e-9);
+
+    // a 50/50: the mine in the top right corner could just as well be below it
+    Grid corner = new Grid(2, 4);
+    corner.negMine(3);
+    game = new Game(corner);
+    game.reveal(0);
+    p = engine.compute(game);
+    t.checkInexact(p[3], 0.5, 1e-9);
+    t.checkInexact(p[7], 0.5, 1e-9);
+
+    // nothing visible: every cell has the same chance
+    game = new Game(4, 5, 5, new Random(1));
+    p = engine.compute(game);
+    t.checkInexact(p[0], 0.25, 1e-9);
+    t.checkInexact(p[19], 0.25, 1e-9);
+
+    // matches trying every placement, with the mines left weighing the frontier's solutions
+    boolean matches = true;
+    for (int seed = 0; seed < 20; seed++) {
+      game = new Game(4, 5, 5, new Random(seed));
+      for (int i = 0; i < 20 && !game.gameOver && game.visibleCells < 6; i += 7) {
+        if (!game.grid.isMine(i)) {
+          game.reveal(i);
+        }
+      }
+      if (!game.gameOver) {
+        p = engine.compute(game);
+        double[] expected = this.bruteForceProbabilities(game);
+        for (int i = 0; i < p.length; i++) {
+          matches = matches && Math.abs(p[i] - expected[i]) < 1e-9;
+        }
+      }
+    }
+    t.checkExpect(matches, true);
+  }
+
+  // test the cache of the MineProbabilities class
+  // purpose: count a component's solutions only the first time its numbers are seen
+  void testProbabilityCache(Tester t) {
+    MineProbabilities engine = new MineProbabilities();
+    Game game = new Game(this.solverGrid());
+    game.reveal(7);
+    engine.compute(game);
+    t.checkExpect(engine.misses, 1);
+    t.checkExpect(engine.hits, 0);
+    engine.compute(game);
+    t.checkExpect(engine.misses, 1);
+    t.checkExpect(engine.hits, 1);
+
+    // the same numbers on another game are the same component
+    Game other = new Game(this.solverGrid());
+    other.reveal(7);
+    engine.compute(other);
+    t.checkExpect(engine.hits, 2);
+  }
+
+  // test the weights method for the MineProbabilities class
+  // purpose: weigh each number of frontier mines by the ways to place the rest elsewhere
+  void testWeights(Tester t) {
+    // 2 mines left and 4 other cells: C(4, 2) = 6, C(4, 1) = 4, C(4, 0) = 1
+    double[] w = MineProbabilities.weights(3, 4, 2);
+    t.checkInexact(w[0], 1.0, 1e-9);
+    t.checkInexact(w[1], 4.0 / 6, 1e-9);
+    t.checkInexact(w[2], 1.0 / 6, 1e-9);
+    // more frontier mines than are left: no weight
+    t.checkInexact(MineProbabilities.weights(4, 4, 2)[3], 0.0, 1e-9);
+    // no other cells: the frontier must hold every mine left
+    t.checkInexact(MineProbabilities.weights(3, 0, 1)[0], 0.0, 1e-9);
+    t.checkInexact(MineProbabilities.weights(3, 0, 1)[1], 1.0, 1e-9);
+  }
+
+  // test the safest method for the MineProbabilities class
+  // purpose: guess the hidden cell least likely to be a mine
+  void testSafest(Tester t) {
+    MineProbabilities engine = new MineProbabilities();
+    Game game = new Game(this.solverGrid());
+    game.reveal(7);
+    int safest = engine.safest(game, new Random(1));
+    t.checkExpect(safest == 0 || safest == 2, true);
+
+    for (int i = 0; i < 9; i++) {
+      game.grid.click(i);
+    }
+    t.checkExpect(engine.safest(game, new Random(1)), -1); // nothing hidden
   }
 
   /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
@@ -285,23 +1723,11 @@ class MinesweeperTests {
     this.board = new Board(2, 2, 0); // no mines -- prevent randomness
     this.boardWithMine = new Board(2, 2, 1, new Random(1)); // 1 mine; given random seed
 
-    this.cell00 = new Cell();
-    this.cell01 = new Cell();
-    this.cell10 = new Cell();
-    this.cell11 = new Cell();
-
-    // 6 combinations (4 choose 2)
-    this.cell00.addNeighbor(this.cell01); // top left <-> top right
-    this.cell00.addNeighbor(this.cell10); // top left <-> bottom left
-    this.cell00.addNeighbor(this.cell11); // top left <-> bottom right
-    this.cell01.addNeighbor(this.cell10); // top right <-> bottom left
-    this.cell01.addNeighbor(this.cell11); // top right <-> bottom right
-    this.cell10.addNeighbor(this.cell11); // bottom left <-> bottom right
-    
-    this.cell00.initMineNeighbors();
-    this.cell01.initMineNeighbors();
-    this.cell10.initMineNeighbors();
-    this.cell11.initMineNeighbors();
+    // views of the no-mine board's cells
+    this.cell00 = new Cell(this.board.game.grid, 0);
+    this.cell01 = new Cell(this.board.game.grid, 1);
+    this.cell10 = new Cell(this.board.game.grid, 2);
+    this.cell11 = new Cell(this.board.game.grid, 3);
   }
 
   // test the get method for the Board data
@@ -309,67 +1735,126 @@ class MinesweeperTests {
   void testGet(Tester t) {
     this.initBoardConditions();
 
-    t.checkExpect(this.board.get(0, 0), this.board.cells.get(0).get(0));
-    t.checkExpect(this.boardWithMine.get(1, 1), this.boardWithMine.cells.get(1).get(1));
-  }
-
-  // test the copyCells method for the Board data
-  // purpose: copy board's cells list
-  void testCopyCells(Tester t) {
-    this.initBoardConditions();
-
-    t.checkExpect(this.board.copyCells(), this.board.cells);
-    t.checkExpect(this.boardWithMine.copyCells(), this.boardWithMine.cells);
+    t.checkExpect(this.board.get(0, 0), this.cell00);
+    t.checkExpect(this.board.get(0, 1), this.cell01);
+    t.checkExpect(this.board.get(1, 0), this.cell10);
+    t.checkExpect(this.board.get(1, 1), this.cell11);
+    t.checkExpect(this.boardWithMine.get(1, 1), new Cell(this.boardWithMine.game.grid, 3));
   }
 
-  // test the initializeCells method for the Board data
-  // purpose: populate the cells list with cell data
-  void testInitializeCells(Tester t) {
-    // initializeCells is called in the constructor
+  // test the grid built by the Board constructor
+  // purpose: allocate state for rows * cols cells, with neighbors found by position
+  void testBoardGrid(Tester t) {
     this.initBoardConditions();
 
-    t.checkExpect(this.board.cells.size(), 2); // 2 rows of cells
-    t.checkExpect(this.board.cells.get(0).size(), 2); // 2 cols of cells
-    t.checkExpect(this.board.cells.get(1).size(), 2); // 2 cols of cells
+    t.checkExpect(this.board.game.grid.rows, 2); // 2 rows of cells
+    t.checkExpect(this.board.game.grid.cols, 2); // 2 cols of cells
+    t.checkExpect(this.board.game.grid.size(), 4);
     t.checkExpect(this.board.get(0, 0).isMine(), false); // no mines on board
-  }
-
-  // test the initializeNeighbors method for the Board data
-  // purpose: set up the links between each cell
-  void testInitializeNeighbors(Tester t) {
-    this.initBoardConditions();
 
-    t.checkExpect(this.board.get(0, 0).neighbors,
-        new ArrayList<Cell>(Arrays.asList(this.cell01, this.cell10, this.cell11)));
-    t.checkExpect(this.board.get(0, 1).neighbors,
-        new ArrayList<Cell>(Arrays.asList(this.cell00, this.cell10, this.cell11)));
-    t.checkExpect(this.board.get(1, 0).neighbors,
-        new ArrayList<Cell>(Arrays.asList(this.cell00, this.cell01, this.cell11)));
-    t.checkExpect(this.board.get(1, 1).neighbors,
-        new ArrayList<Cell>(Arrays.asList(this.cell00, this.cell01, this.cell10)));
-
-    t.checkExpect(this.board.get(0, 0), this.cell00);
-    t.checkExpect(this.board.get(0, 1), this.cell01);
-    t.checkExpect(this.board.get(1, 0), this.cell10);
-    t.checkExpect(this.board.get(1, 1), this.cell11);
+    // every cell on a 2x2 board neighbors every other cell
+    int[] buffer = new int[8];
+    t.checkExpect(this.board.game.grid.neighbors(0, buffer), 3);
+    t.checkExpect(Arrays.copyOf(buffer, 3), new int[] {1, 2, 3});
+    t.checkExpect(this.board.game.grid.neighbors(3, buffer), 3);
+    t.checkExpect(Arrays.copyOf(buffer, 3), new int[] {0, 1, 2});
   }
 
   // test the placeMines method for the Board data
-  // purpose: randomly place this board's given number of mines
+  // purpose: randomly place this board's given number of mines, away from the first reveal
   void testPlaceMines(Tester t) {
-    // placeMines is called in the constructor
+    // placeMines is called on the first reveal
     this.initBoardConditions();
+    t.checkExpect(this.boardWithMine.game.grid.countMines(), 0);
+    this.boardWithMine.game.reveal(3);
+    t.checkExpect(this.boardWithMine.game.grid.isMine(3), false);
 
-    Random randTest = new Random(1);
-    int randRow = randTest.nextInt(2);
-    int randCol = randTest.nextInt(2);
+    // 1 mine in 3 free cells is dense => the mine is swapped in from the first random
+    // position of the list of free cells (0, 1, 2)
+    int randIndex = new Random(1).nextInt(3);
+    int randRow = randIndex / 2;
+    int randCol = randIndex % 2;
 
     // check that there was a mine placed at the randomly generated position
     t.checkExpect(this.boardWithMine.get(randRow, randCol).isMine(), true);
 
-    // check that minesList was updated
-    t.checkExpect(this.boardWithMine.minesList.size(), 1);
-    t.checkExpect(this.boardWithMine.minesList.get(0).isMine(), true);
+    // check that exactly one mine was placed
+    t.checkExpect(this.boardWithMine.game.grid.countMines(), 1);
+    t.checkExpect(this.board.game.grid.countMines(), 0);
+
+    // check that mine neighbor counts were initialized
+    t.checkExpect(this.boardWithMine.get(1 - randRow, 1 - randCol).numMineNeighbors(), 1);
+
+    // a safe opening keeps the first reveal's neighbors clear, when there's room
+    Game game = new Game(10, 10, 50, new Random(5));
+    game.safeOpening = true;
+    game.reveal(11);
+    int[] neighbors = new int[8];
+    boolean clear = true;
+    for (int i = game.grid.neighbors(11, neighbors) - 1; i >= 0; i--) {
+      clear = clear && !game.grid.isMine(neighbors[i]);
+    }
+    t.checkExpect(clear, true);
+    t.checkExpect(game.grid.countMines(), 50);
+    t.checkExpect(game.grid.mineNeighbors[11], (byte) 0);
+
+    // no room to keep the neighbors clear => only the revealed cell is
+    game = new Game(3, 3, 8, new Random(5));
+    game.safeOpening = true;
+    game.reveal(4);
+    t.checkExpect(game.grid.isMine(4), false);
+    t.checkExpect(game.status(), Game.WON);
+
+    // every cell a mine => the first reveal can't be safe
+    game = new Game(2, 2, 4, new Random(5));
+    game.reveal(0);
+    t.checkExpect(game.status(), Game.LOST);
+  }
+
+  // test that placeMines is reproducible with a seeded Random
+  // purpose: the same seed gives the same board, for sparse and dense boards alike
+  void testPlaceMinesSeeded(Tester t) {
+    Board sparse1 = new Board(30, 40, 100, new Random(42));
+    Board sparse2 = new Board(30, 40, 100, new Random(42));
+    sparse1.game.reveal(77);
+    sparse2.game.reveal(77);
+    t.checkExpect(sparse1.game.grid.mineBits, sparse2.game.grid.mineBits);
+    t.checkExpect(sparse1.game.grid.countMines(), 100);
+
+    Board dense1 = new Board(30, 40, 900, new Random(42));
+    Board dense2 = new Board(30, 40, 900, new Random(42));
+    dense1.game.reveal(77);
+    dense2.game.reveal(77);
+    t.checkExpect(dense1.game.grid.mineBits, dense2.game.grid.mineBits);
+    t.checkExpect(dense1.game.grid.countMines(), 900);
+    t.checkExpect(dense1.game.grid.isMine(77), false);
+
+    // every cell can be a mine
+    Board full = new Board(30, 40, 1200, new Random(42));
+    full.game.placeMines();
+    t.checkExpect(full.game.grid.countMines(), 1200);
+  }
+
+  // test the placeMinesSparse and placeMinesDense methods for the Grid class
+  // purpose: place exactly the given number of mines, in a seed-determined layout
+  void testGridPlaceMines(Tester t) {
+    Grid sparse = new Grid(10, 10);
+    sparse.placeMinesSparse(10, new Random(3));
+    t.checkExpect(sparse.countMines(), 10);
+
+    // the first sparse mine is the first random index
+    t.checkExpect(sparse.isMine(new Random(3).nextInt(100)), true);
+
+    Grid dense = new Grid(10, 10);
+    dense.placeMinesDense(60, new Random(3));
+    t.checkExpect(dense.countMines(), 60);
+
+    // the first dense mine is swapped in from the first random position
+    t.checkExpect(dense.isMine(new Random(3).nextInt(100)), true);
+
+    Grid full = new Grid(10, 10);
+    full.placeMinesDense(100, new Random(3));
+    t.checkExpect(full.countMines(), 100);
   }
 
   // WORLD METHODS ------------------------------------------------------------
@@ -380,11 +1865,9 @@ class MinesweeperTests {
     Board board = new Board(20, 20, 50);
 
     /*
-    for (ArrayList<Cell> cells : board.cells) {
-      for (Cell cell : cells) {
-        cell.click(); // show the contents of each cell
-      }
-    }   
+    for (int i = 0; i < board.game.grid.size(); i++) {
+      board.game.grid.click(i); // show the contents of each cell
+    }
     */
 
     board.bigBang(400, 400);
@@ -398,132 +1881,156 @@ class MinesweeperTests {
     WorldScene scene = new WorldScene(40, 40);
     WorldScene gridScene = new WorldScene(40, 40);
 
-    // draw horizontal grid lines
-    LineImage horizLine = new LineImage(new Posn(40, 0), Color.BLACK); // (cols * 20, 0)
-    gridScene.placeImageXY(horizLine, 20, 0); // border
-    gridScene.placeImageXY(horizLine, 20, 20); // mid
-    gridScene.placeImageXY(horizLine, 20, 40); // border
-
-    // draw vertical grid lines (cell side length = 20)
-    LineImage vertLine = new LineImage(new Posn(0, 40), Color.BLACK); // (0, cols * 20)
-    gridScene.placeImageXY(vertLine, 0, 20); // border
-    gridScene.placeImageXY(vertLine, 20, 20); // mid
-    gridScene.placeImageXY(vertLine, 40, 20); // border
+    // the 2x2 grid lines (including borders) are one image, centered on the board
+    gridScene.placeImageXY(GridOverlay.of(2, 2).layer, 20, 20);
 
     t.checkExpect(this.board.drawGrid(scene), gridScene); // 2x2 grid on 2x2 board
-    t.checkExpect(this.boardWithMine.drawGrid(scene), gridScene);
+    t.checkExpect(this.boardWithMine.drawGrid(new WorldScene(40, 40)), gridScene);
+
+    // a board bigger than its view gets the view's grid, the same one makeScene draws
+    Board big = new Board(100, 100, 10, new Random(1));
+    big.makeScene();
+    GridOverlay overlay = GridOverlay.last;
+    big.drawGrid(new WorldScene(40, 40));
+    t.checkExpect(GridOverlay.last == overlay, true);
+    t.checkExpect(overlay.rows, IConstants.MAX_VIEW_ROWS);
+    t.checkExpect(overlay.cols, IConstants.MAX_VIEW_COLS);
+  }
+
+  // test the of method for the GridOverlay class
+  // purpose: build the overlay once per board size
+  void testGridOverlayOf(Tester t) {
+    GridOverlay overlay = GridOverlay.of(2, 3);
+    t.checkExpect(GridOverlay.of(2, 3) == overlay, true); // same size => not rebuilt
+    t.checkExpect(overlay.layer == GridOverlay.of(2, 3).layer, true);
+    t.checkExpect(overlay.rows, 2);
+    t.checkExpect(overlay.cols, 3);
+
+    GridOverlay other = GridOverlay.of(3, 2); // new size => rebuilt
+    t.checkExpect(other == overlay, false);
+    t.checkExpect(other.rows, 3);
+    t.checkExpect(GridOverlay.of(3, 2) == other, true);
+  }
+
+  // test the drawOnto method for the GridOverlay class
+  // purpose: place one layer, or shared lines for boards too big to draw as one image
+  void testGridOverlayDrawOnto(Tester t) {
+    GridOverlay small = new GridOverlay(2, 2);
+    WorldScene smallScene = new WorldScene(40, 40);
+    WorldScene smallExpected = new WorldScene(40, 40);
+    smallExpected.placeImageXY(small.layer, 20, 20);
+    t.checkExpect(small.drawOnto(smallScene), 1);
+    t.checkExpect(smallScene, smallExpected);
+
+    // (6001 x 6001 pixels is too many for one image)
+    GridOverlay big = new GridOverlay(300, 300);
+    t.checkExpect(big.layer, null);
+    t.checkExpect(big.horizontal, new LineImage(new Posn(6000, 0), Color.BLACK));
+    t.checkExpect(big.vertical, new LineImage(new Posn(0, 6000), Color.BLACK));
+
+    WorldScene bigScene = new WorldScene(6000, 6000);
+    t.checkExpect(big.drawOnto(bigScene), 301 + 301);
   }
 
   // test the makeScene method for the Board class
   // purpose: draw the cells in the right positions, and place a grid on top
   void testMakeScene(Tester t) {
-    this.initBoardConditions();
-
     /* Key:
-     * CUU: cellUnflaggedUnclicked
-     * CUC: cellUnflaggedClicked
-     * CFU: cellFlaggedUnclicked
-     * MUU: mineUnflaggedUnclicked
-     * MUC: mineUnflaggedClicked
-     * MFU: mineFlaggedUnclicked
+     * CUU: cell, unflagged, unclicked
+     * CUC: cell, unflagged, clicked
+     * CFU: cell, flagged, unclicked
+     * MUU: mine, unflagged, unclicked
+     * MUC: mine, unflagged, clicked
+     * MFU: mine, flagged, unclicked
      * C = cell
      * F = flagged
      * M = mine
      */
 
-    this.initCellConditions(); // reset cell conditions for board 1
-
     /* Board 1 Layout:
      * CUU CUC
      * MUU MFU
      */
 
-    ArrayList<Cell> row1 = new ArrayList<Cell>(
-        Arrays.asList(this.cellUnflaggedUnclicked, this.cellUnflaggedClicked));
-    ArrayList<Cell> row2 = new ArrayList<Cell>(
-        Arrays.asList(this.mineUnflaggedUnclicked, this.mineFlaggedUnclicked));
-    ArrayList<ArrayList<Cell>> cells1 = new ArrayList<ArrayList<Cell>>(Arrays.asList(row1, row2));
-    Board board1 = new Board(cells1);
+    Grid grid1 = new Grid(2, 2);
+    grid1.click(1); // TR
+    grid1.negMine(2); // BL
+    grid1.negMine(3); // BR
+    grid1.negFlag(3); // BR
+    Board board1 = new Board(grid1);
     WorldScene scene1 = board1.getEmptyScene();
 
-    // initialize neighbors
-    this.cellUnflaggedUnclicked.addNeighbor(this.cellUnflaggedClicked); // TL <-> TR
-    this.cellUnflaggedUnclicked.addNeighbor(this.mineUnflaggedUnclicked); // TL <-> BL
-    this.cellUnflaggedUnclicked.addNeighbor(this.mineFlaggedUnclicked); // TL <-> BR
-    this.cellUnflaggedClicked.addNeighbor(this.mineUnflaggedUnclicked); // TR <-> BL
-    this.cellUnflaggedClicked.addNeighbor(this.mineFlaggedUnclicked); // TR <-> BR
-    // BL <-> BR
-    this.mineUnflaggedUnclicked.addNeighbor(this.mineFlaggedUnclicked);
-
     /* Board 1 Drawing:
-     * 2 2
-     * C F
+     * _ 2
+     * _ F
      */
 
     // x = (column * IConstants.CELL_SIDE) + (IConstants.CELL_SIDE / 2)
     // y = (row * IConstants.CELL_SIDE) + (IConstants.CELL_SIDE / 2)
-    scene1.placeImageXY(this.cellUnflaggedUnclicked.draw(), 10, 10); // TL
-    scene1.placeImageXY(this.cellUnflaggedClicked.draw(), 30, 10); // TR
-    scene1.placeImageXY(this.mineUnflaggedUnclicked.draw(), 10, 30); // BL
-    scene1.placeImageXY(this.mineFlaggedUnclicked.draw(), 30, 30); // BR
+    scene1.placeImageXY(board1.get(0, 0).draw(), 10, 10); // TL
+    scene1.placeImageXY(board1.get(0, 1).draw(), 30, 10); // TR
+    scene1.placeImageXY(board1.get(1, 0).draw(), 10, 30); // BL
+    scene1.placeImageXY(board1.get(1, 1).draw(), 30, 30); // BR
 
     scene1 = board1.drawGrid(scene1);
 
     t.checkExpect(board1.makeScene(), scene1); // intermediate board test
 
+    // nothing changed => the last frame is reused as-is
+    t.checkExpect(board1.makeScene() == board1.scene, true);
+    t.checkExpect(board1.numPlaced, 4 + 1); // 4 cells + the grid overlay
+    t.checkExpect(board1.makeScene(), scene1);
+    t.checkExpect(board1.numPlaced, 5);
+
     // test end game board drawing -- win (all non-mines clicked)
-    this.mineFlaggedUnclicked.negFlag(); // unflag the last cell
-    this.mineFlaggedUnclicked.click(); // click the last cell
+    // only the changed cell is drawn, over the last frame, with the grid and message on top
+    grid1.click(0);
+    board1.game.endGame(true);
+    WorldScene winScene = scene1;
+    winScene.placeImageXY(board1.get(0, 0).draw(), 10, 10); // TL
+    winScene = board1.drawGrid(winScene);
 
     RectangleImage box = new RectangleImage(40, 4, OutlineMode.SOLID, Color.BLACK);
     TextImage winText = new TextImage("You won! Press enter to play again :)", 2, FontStyle.REGULAR,
         Color.GREEN);
     OverlayImage textBox = new OverlayImage(winText, box);
-    scene1.placeImageXY(textBox, 20, 20);
+    winScene.placeImageXY(textBox, 20, 20);
 
-    t.checkExpect(board1.makeScene(), scene1);
-
-    this.initCellConditions(); // reset cell conditions for board 2
+    t.checkExpect(board1.makeScene(), winScene);
+    t.checkExpect(board1.numPlaced, 5 + 1 + 1 + 1);
+    t.checkExpect(board1.makeScene(), winScene); // the message is only placed once
 
     /* Board 2 Layout:
      * CUU CUC
      * MUC CFU
      */
 
-    ArrayList<Cell> row1B2 = new ArrayList<Cell>(
-        Arrays.asList(this.cellUnflaggedUnclicked, this.cellUnflaggedClicked));
-    ArrayList<Cell> row2B2 = new ArrayList<Cell>(
-        Arrays.asList(this.mineUnflaggedClicked, this.cellFlaggedUnclicked));
-    ArrayList<ArrayList<Cell>> cells2 = new ArrayList<ArrayList<Cell>>(
-        Arrays.asList(row1B2, row2B2));
-    Board board2 = new Board(cells2);
+    Grid grid2 = new Grid(2, 2);
+    grid2.click(1); // TR
+    grid2.negMine(2); // BL
+    grid2.click(2); // BL
+    grid2.negFlag(3); // BR
+    Board board2 = new Board(grid2);
     WorldScene scene2 = board2.getEmptyScene();
 
-    // initialize neighbors
-    this.cellUnflaggedUnclicked.addNeighbor(this.cellUnflaggedClicked); // TL <-> TR
-    this.cellUnflaggedUnclicked.addNeighbor(this.mineUnflaggedClicked); // TL <-> BL
-    this.cellUnflaggedUnclicked.addNeighbor(this.cellFlaggedUnclicked); // TL <-> BR
-    this.cellUnflaggedClicked.addNeighbor(this.mineUnflaggedClicked); // TR <-> BL
-    this.cellUnflaggedClicked.addNeighbor(this.cellFlaggedUnclicked); // TR <-> BR
-    this.mineUnflaggedUnclicked.addNeighbor(this.cellFlaggedUnclicked); // BL <-> BR
-
     /* Board 2 Drawing:
-     * C 1
+     * _ 1
      * M F
      */
 
     // x = (column * IConstants.CELL_SIDE) + (IConstants.CELL_SIDE / 2)
     // y = (row * IConstants.CELL_SIDE) + (IConstants.CELL_SIDE / 2)
-    scene1.placeImageXY(this.cellUnflaggedUnclicked.draw(), 10, 10); // TL
-    scene1.placeImageXY(this.cellUnflaggedClicked.draw(), 30, 10); // TR
-    scene1.placeImageXY(this.mineUnflaggedClicked.draw(), 10, 30); // BL
-    scene1.placeImageXY(this.cellFlaggedUnclicked.draw(), 30, 30); // BR
+    scene2.placeImageXY(board2.get(0, 0).draw(), 10, 10); // TL
+    scene2.placeImageXY(board2.get(0, 1).draw(), 30, 10); // TR
+    scene2.placeImageXY(board2.get(1, 0).draw(), 10, 30); // BL
+    scene2.placeImageXY(board2.get(1, 1).draw(), 30, 30); // BR
 
     scene2 = board2.drawGrid(scene2);
 
     t.checkExpect(board2.makeScene(), scene2); // intermediate board test
 
     // test end game board drawing -- loss (mine clicked)
+    board2.game.endGame(false);
     RectangleImage box2 = new RectangleImage(40, 4, OutlineMode.SOLID, Color.BLACK);
     TextImage loseText = new TextImage("Game over! Press enter to play again :)", 2,
         FontStyle.REGULAR, Color.RED);
@@ -532,51 +2039,78 @@ class MinesweeperTests {
 
     t.checkExpect(board2.makeScene(), scene2);
 
+    // test redrawing from scratch when too many cells changed to keep track of them
+    grid2.negFlag(3);
+    grid2.allChanged = true;
+    WorldScene scene3 = board2.getEmptyScene();
+    scene3.placeImageXY(board2.get(0, 0).draw(), 10, 10); // TL
+    scene3.placeImageXY(board2.get(0, 1).draw(), 30, 10); // TR
+    scene3.placeImageXY(board2.get(1, 0).draw(), 10, 30); // BL
+    scene3.placeImageXY(board2.get(1, 1).draw(), 30, 30); // BR
+    scene3 = board2.drawGrid(scene3);
+    scene3.placeImageXY(textBox2, 20, 20);
+
+    t.checkExpect(board2.makeScene(), scene3);
+    t.checkExpect(board2.numPlaced, 6);
+    t.checkExpect(grid2.allChanged, false);
+
+    // test redrawing from scratch once the last frame has piled up too many images
+    Board board3 = new Board(new Grid(2, 2));
+    WorldScene first = board3.makeScene();
+    for (int i = 0; i < 4; i++) {
+      board3.game.grid.negFlag(0);
+      t.checkExpect(board3.makeScene() == first, true); // 1 cell + the overlay added
+    }
+    t.checkExpect(board3.numPlaced, 5 + 4 * 2);
+    t.checkExpect(board3.makeScene() == first, true); // nothing changed => nothing to redo
+    board3.game.grid.negFlag(0);
+    t.checkExpect(board3.makeScene() == first, false); // 13 > 4 * 3 => new scene
+    t.checkExpect(board3.numPlaced, 5);
   }
 
-  // test the clickCell method for the Board class
+  // test the clickCell method for the Game class (through a board)
   void testClickCell(Tester t) {
     this.initBoardConditions();
 
     // 0 mine neighbors => flood-fill
-    this.board.clickCell(this.board.get(0, 0));
+    this.board.game.clickCell(this.board.get(0, 0).index);
     t.checkExpect(this.board.get(0, 0).isClicked(), true);
     t.checkExpect(this.board.get(0, 1).isClicked(), true);
     t.checkExpect(this.board.get(1, 0).isClicked(), true);
     t.checkExpect(this.board.get(1, 1).isClicked(), true);
-    t.checkExpect(this.board.visibleCells, 4);
-    t.checkExpect(this.board.gameOver, true);
-    t.checkExpect(this.board.win, true);
+    t.checkExpect(this.board.game.visibleCells, 4);
+    t.checkExpect(this.board.game.gameOver, true);
+    t.checkExpect(this.board.game.win, true);
 
     Board board3x3 = new Board(3, 3, 0);
     
     board3x3.get(0, 0).negMine();
 
     // 1 mine neighbor => no flood-fill
-    board3x3.clickCell(board3x3.get(0, 1));
+    board3x3.game.clickCell(board3x3.get(0, 1).index);
     t.checkExpect(board3x3.get(0, 0).isClicked(), false); // mine isn't shown
     t.checkExpect(board3x3.get(0, 1).isClicked(), true);
-    t.checkExpect(board3x3.visibleCells, 1);
-    t.checkExpect(board3x3.win, false);
+    t.checkExpect(board3x3.game.visibleCells, 1);
+    t.checkExpect(board3x3.game.win, false);
   }
 
-  // test the endGame method for the Board class
+  // test the endGame method for the Game class (through a board)
   // purpose: mutate the board's endgame booleans
   void testEndGame(Tester t) {
     Board board1 = new Board(2, 2, 2);
     Board board2 = new Board(2, 2, 2);
 
     // init conditions
-    t.checkExpect(board1.gameOver, false);
-    t.checkExpect(board2.win, false);
+    t.checkExpect(board1.game.gameOver, false);
+    t.checkExpect(board2.game.win, false);
 
-    board1.endGame(false);
-    board2.endGame(true);
+    board1.game.endGame(false);
+    board2.game.endGame(true);
 
-    t.checkExpect(board1.gameOver, true);
-    t.checkExpect(board2.gameOver, true);
-    t.checkExpect(board1.win, false);
-    t.checkExpect(board2.win, true);
+    t.checkExpect(board1.game.gameOver, true);
+    t.checkExpect(board2.game.gameOver, true);
+    t.checkExpect(board1.game.win, false);
+    t.checkExpect(board2.game.win, true);
   }
 
   // test the getCellPos method for the Board class
@@ -588,16 +2122,62 @@ class MinesweeperTests {
     t.checkExpect(this.board.getCellPos(new Posn(19, 19)), this.cell00);
 
     t.checkExpect(this.board.getCellPos(new Posn(20, 0)), this.cell01);
-    t.checkExpect(this.board.getCellPos(new Posn(39, 39)), this.cell01);
+    t.checkExpect(this.board.getCellPos(new Posn(39, 19)), this.cell01);
 
     t.checkExpect(this.board.getCellPos(new Posn(0, 20)), this.cell10);
-    t.checkExpect(this.board.getCellPos(new Posn(39, 39)), this.cell10);
+    t.checkExpect(this.board.getCellPos(new Posn(19, 39)), this.cell10);
 
     t.checkExpect(this.board.getCellPos(new Posn(20, 20)), this.cell11);
     t.checkExpect(this.board.getCellPos(new Posn(39, 39)), this.cell11);
     t.checkExpect(this.board.getCellPos(new Posn(40, 40)), this.cell11); // edge case
   }
 
+  // test the initView, pan and inView methods for the Board class, and the view in makeScene,
+  // getCellPos and the mouse listeners
+  // purpose: show only a window-sized view of a large board, and pan it around
+  void testView(Tester t) {
+    Board small = new Board(new Grid(3, 4));
+    t.checkExpect(small.viewRows, 3); // small boards are shown whole
+    t.checkExpect(small.viewCols, 4);
+    small.pan(1, 1);
+    t.checkExpect(small.topRow, 0);
+
+    Board large = new Board(new Grid(1000, 2000));
+    t.checkExpect(large.viewRows, IConstants.MAX_VIEW_ROWS);
+    t.checkExpect(large.viewCols, IConstants.MAX_VIEW_COLS);
+    large.makeScene();
+    int viewCells = IConstants.MAX_VIEW_ROWS * IConstants.MAX_VIEW_COLS;
+    t.checkExpect(large.numPlaced, viewCells + 1); // the cells in view and the grid lines
+
+    // panning moves the view as far as the edges allow, and redraws it
+    large.onKeyEvent("down");
+    large.onKeyEvent("right");
+    t.checkExpect(large.topRow, IConstants.PAN_STEP);
+    t.checkExpect(large.leftCol, IConstants.PAN_STEP);
+    t.checkExpect(large.scene, null);
+    large.pan(5000, -5000);
+    t.checkExpect(large.topRow, 1000 - IConstants.MAX_VIEW_ROWS);
+    t.checkExpect(large.leftCol, 0);
+    large.onMousePressed(new Posn(100, 100), "LeftButton");
+    large.onMouseReleased(new Posn(59, 145), "LeftButton"); // 2 columns left, 2 rows down
+    t.checkExpect(large.topRow, 1000 - IConstants.MAX_VIEW_ROWS - 2);
+    t.checkExpect(large.leftCol, 2);
+
+    // clicks are mapped through the view, and only changes in view are drawn
+    int top = large.topRow;
+    t.checkExpect(large.getCellPos(new Posn(25, 5)).index, large.game.grid.index(top, 3));
+    large.makeScene();
+    large.onMouseClicked(new Posn(25, 5), "RightButton");
+    large.game.flag(0); // out of view
+    int placed = large.numPlaced;
+    large.makeScene();
+    t.checkExpect(large.numPlaced, placed + 2); // the flag in view, and the grid lines
+    t.checkExpect(large.game.grid.isFlagged(large.game.grid.index(top, 3)), true);
+    large.game.flag(1);
+    large.makeScene();
+    t.checkExpect(large.numPlaced, placed + 2); // nothing in view changed
+  }
+
   // test the onMouseClicked method for the Board class
   // purpose: right click => negate flag; left click => click
   void testOnMouseClicked(Tester t) {
@@ -606,7 +2186,7 @@ class MinesweeperTests {
     t.checkExpect(this.board.get(0, 1).isFlagged(), true);
     this.board.onMouseClicked(new Posn(20, 0), "RightButton"); // unflag
     t.checkExpect(this.board.get(0, 1).isFlagged(), false);
-    t.checkExpect(this.board.visibleCells, 0);
+    t.checkExpect(this.board.game.visibleCells, 0);
 
     // click => flood fill
     this.board.onMouseClicked(new Posn(0, 0), "LeftButton");
@@ -614,7 +2194,7 @@ class MinesweeperTests {
     t.checkExpect(this.board.get(0, 1).isClicked(), true);
     t.checkExpect(this.board.get(1, 0).isClicked(), true);
     t.checkExpect(this.board.get(1, 1).isClicked(), true);
-    t.checkExpect(this.board.visibleCells, 4);
+    t.checkExpect(this.board.game.visibleCells, 4);
 
     this.initBoardConditions(); // reset board
 
@@ -630,8 +2210,6 @@ class MinesweeperTests {
     // set two cells to be mines
     this.board.get(0, 0).negMine();
     this.board.get(0, 1).negMine();
-    this.board.minesList = new ArrayList<Cell>(
-        Arrays.asList(this.board.get(0, 0), this.board.get(0, 1)));
 
     // click a non-mine on first turn
     this.board.onMouseClicked(new Posn(40, 40), "LeftButton");
@@ -641,19 +2219,31 @@ class MinesweeperTests {
     this.board.onMouseClicked(new Posn(0, 0), "LeftButton");
     t.checkExpect(this.board.get(0, 0).isClicked(), true);
     t.checkExpect(this.board.get(0, 1).isClicked(), true);
-    t.checkExpect(this.board.gameOver, true);
-    t.checkExpect(this.board.win, false);
+    t.checkExpect(this.board.game.gameOver, true);
+    t.checkExpect(this.board.game.win, false);
 
     // the game is over => clicks don't do anything
     this.board.onMouseClicked(new Posn(0, 20), "LeftButton");
     t.checkExpect(this.board.get(1, 0).isClicked(), false);
+
+    // middle-click => chord
+    Grid grid = new Grid(3, 3);
+    grid.negMine(0);
+    Board chording = new Board(grid);
+    chording.onMouseClicked(new Posn(30, 30), "LeftButton");
+    chording.onMouseClicked(new Posn(30, 30), "MiddleButton"); // no flag yet
+    t.checkExpect(chording.game.visibleCells, 1);
+    chording.onMouseClicked(new Posn(10, 10), "RightButton");
+    chording.onMouseClicked(new Posn(30, 30), "MiddleButton");
+    t.checkExpect(chording.game.visibleCells, 8);
+    t.checkExpect(chording.game.status(), Game.WON);
   }
 
   // test the onKeyEvent method for the Board class
   // purpose: allow the user to play again or end the game
   void testOnKeyEvent(Tester t) {
     this.initBoardConditions();
-    this.board.endGame(false);
+    this.board.game.endGame(false);
     this.board.onKeyEvent("f"); // not enter => end world
     // the world has ended => clicks don't do anything
     this.board.onMouseClicked(new Posn(0, 20), "LeftButton");
@@ -662,13 +2252,42 @@ class MinesweeperTests {
     // key press during gameplay does nothing
     this.initBoardConditions(); // reset board
     this.board.onKeyEvent("f");
-    t.checkExpect(this.board.gameOver, false); // doesn't end game
+    t.checkExpect(this.board.game.gameOver, false); // doesn't end game
 
     this.initBoardConditions(); // reset board
-    this.board.endGame(false);
+    this.board.makeScene();
+    this.board.game.endGame(false);
     this.board.onKeyEvent("enter");
-    t.checkExpect(this.board.gameOver, false); // check that board was reset
+    t.checkExpect(this.board.game.gameOver, false); // check that board was reset
+    t.checkExpect(this.board.scene, null); // the new board is drawn from scratch
     this.board.onMouseClicked(new Posn(0, 20), "LeftButton");
     t.checkExpect(this.board.get(1, 0).isClicked(), true);
+
+    // s during gameplay plays a solver step: the bottom two rows give 0 and 2 away
+    Board solving = new Board(this.solverGrid());
+    solving.game.reveal(7);
+    solving.onKeyEvent("s");
+    t.checkExpect(solving.game.grid.isClicked(0), true);
+    t.checkExpect(solving.game.grid.isClicked(2), true);
+    t.checkExpect(solving.game.status(), Game.WON);
+
+    // z and y undo and redo, even once the game is over
+    Board undoing = new Board(this.solverGrid());
+    undoing.game.reveal(1);
+    undoing.makeScene();
+    undoing.onKeyEvent("z");
+    t.checkExpect(undoing.game.status(), Game.PLAYING);
+    t.checkExpect(undoing.scene, null); // the game-over message has to go
+    undoing.onKeyEvent("y");
+    t.checkExpect(undoing.game.status(), Game.LOST);
+
+    // on seeded and no-guess boards too
+    Board seeded = new Board(9, 9, 10, new Random(3), true);
+    seeded.onMouseClicked(new Posn(90, 90), "LeftButton");
+    t.checkExpect(seeded.game.visibleCells > 0, true);
+    seeded.onKeyEvent("z");
+    t.checkExpect(seeded.game.visibleCells, 0);
+    seeded.onKeyEvent("y");
+    t.checkExpect(seeded.game.visibleCells > 0, true);
   }
 }
\ No newline at end of file